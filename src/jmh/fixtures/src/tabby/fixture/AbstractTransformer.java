@@ -0,0 +1,14 @@
+package tabby.fixture;
+
+public abstract class AbstractTransformer implements Transformer {
+
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,26 @@
+package tabby.fixture;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+public class BadAttributeValue implements Serializable {
+
+    private Object val;
+
+    public BadAttributeValue(Object val) {
+        this.val = val;
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = ois.readFields();
+        Object value = fields.get("val", null);
+        if (value == null) {
+            val = null;
+        } else if (value instanceof String) {
+            val = value;
+        } else {
+            val = value.toString();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package tabby.fixture;
+
+import java.io.Serializable;
+
+public class BranchingHolder implements Serializable {
+
+    private Object value;
+    private Object backup;
+    private BranchingHolder next;
+
+    public Object choose(Object a, Object b, boolean flag) {
+        Object x = a;
+        if (flag) {
+            x = b;
+            this.value = a;
+        } else {
+            this.backup = b;
+        }
+        return x;
+    }
+
+    public Object clearOnOneBranch(Object a, boolean flag) {
+        Object x = a;
+        Object y = x;
+        if (flag) {
+            x = null;
+        }
+        this.value = y;
+        return x;
+    }
+
+    public void swap(BranchingHolder other, boolean flag) {
+        BranchingHolder h = this;
+        if (flag) {
+            h = other;
+        }
+        Object tmp = h.value;
+        h.value = h.backup;
+        h.backup = tmp;
+    }
+
+    public Object walk(Object seed, int n) {
+        BranchingHolder cur = this;
+        Object last = seed;
+        while (n-- > 0 && cur != null) {
+            cur.value = last;
+            last = cur.backup;
+            cur = cur.next;
+        }
+        return last;
+    }
+
+    public void link(BranchingHolder other, Object v) {
+        if (other != null) {
+            other.next = this;
+            this.value = v;
+        } else {
+            this.next = null;
+        }
+        this.backup = this.value;
+    }
+}
@@ -0,0 +1,18 @@
+package tabby.fixture;
+
+public class ChainedTransformer extends AbstractTransformer {
+
+    private final Transformer[] transformers;
+
+    public ChainedTransformer(Transformer[] transformers) {
+        this.transformers = transformers;
+    }
+
+    public Object transform(Object input) {
+        Object object = input;
+        for (Transformer transformer : transformers) {
+            object = transformer.transform(object);
+        }
+        return object;
+    }
+}
@@ -0,0 +1,25 @@
+package tabby.fixture;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+public class CommandRunner implements Serializable {
+
+    private String[] command;
+
+    public String[] getCommand() {
+        return command;
+    }
+
+    public void setCommand(String[] command) {
+        this.command = command;
+    }
+
+    public Process run() throws IOException {
+        return Runtime.getRuntime().exec(command);
+    }
+
+    public Object lookup(String name) throws Exception {
+        return Class.forName(name).newInstance();
+    }
+}
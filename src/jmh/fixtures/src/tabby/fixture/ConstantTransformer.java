@@ -0,0 +1,14 @@
+package tabby.fixture;
+
+public class ConstantTransformer extends AbstractTransformer {
+
+    private final Object constant;
+
+    public ConstantTransformer(Object constant) {
+        this.constant = constant;
+    }
+
+    public Object transform(Object input) {
+        return constant;
+    }
+}
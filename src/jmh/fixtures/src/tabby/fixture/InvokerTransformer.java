@@ -0,0 +1,28 @@
+package tabby.fixture;
+
+import java.lang.reflect.Method;
+
+public class InvokerTransformer extends AbstractTransformer {
+
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    private final Object[] args;
+
+    public InvokerTransformer(String methodName, Class<?>[] paramTypes, Object[] args) {
+        this.methodName = methodName;
+        this.paramTypes = paramTypes;
+        this.args = args;
+    }
+
+    public Object transform(Object input) {
+        if (input == null) {
+            return null;
+        }
+        try {
+            Method method = input.getClass().getMethod(methodName, paramTypes);
+            return method.invoke(input, args);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package tabby.fixture;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class LazyMap extends AbstractMap<Object, Object> implements Serializable {
+
+    private final Map<Object, Object> map = new HashMap<>();
+    private final Transformer factory;
+
+    public LazyMap(Transformer factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!map.containsKey(key)) {
+            Object value = factory.transform(key);
+            map.put(key, value);
+            return value;
+        }
+        return map.get(key);
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return map.entrySet();
+    }
+}
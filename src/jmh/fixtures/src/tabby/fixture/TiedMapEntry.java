@@ -0,0 +1,38 @@
+package tabby.fixture;
+
+import java.io.Serializable;
+import java.util.Map;
+
+public class TiedMapEntry implements Map.Entry<Object, Object>, Serializable {
+
+    private final Map<Object, Object> map;
+    private final Object key;
+
+    public TiedMapEntry(Map<Object, Object> map, Object key) {
+        this.map = map;
+        this.key = key;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public Object getValue() {
+        return map.get(key);
+    }
+
+    public Object setValue(Object value) {
+        return map.put(key, value);
+    }
+
+    @Override
+    public int hashCode() {
+        Object value = getValue();
+        return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + getValue();
+    }
+}
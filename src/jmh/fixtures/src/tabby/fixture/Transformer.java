@@ -0,0 +1,8 @@
+package tabby.fixture;
+
+import java.io.Serializable;
+
+public interface Transformer extends Serializable {
+
+    Object transform(Object input);
+}
@@ -0,0 +1,86 @@
+package tabby.core;
+
+import soot.Scene;
+import soot.SootClass;
+import soot.SourceLocator;
+import tabby.config.GlobalConfiguration;
+import tabby.config.SootConfiguration;
+import tabby.core.container.DataContainer;
+import tabby.core.container.HierarchyContainer;
+import tabby.core.container.MethodSummaryContainer;
+import tabby.core.container.RulesContainer;
+import tabby.dal.caching.bean.ref.ClassReference;
+import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.dal.caching.service.ClassRefService;
+import tabby.dal.caching.service.MethodRefService;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * benchmark 公共的测试环境
+ * 类文件来自 src/jmh/fixtures/tabby-fixture.jar，对应的源码在 src/jmh/fixtures/src 下，修改后需要重新打包：
+ * javac --release 8 -d out src/tabby/fixture/*.java && jar cf tabby-fixture.jar -C out tabby
+ * benchmark 需要在项目根目录下运行（gradle jmh），以读取 config 和 rules
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+public class Fixtures {
+
+    public static final String FIXTURE_JAR = System.getProperty("tabby.benchmark.fixture",
+            String.join(File.separator, System.getProperty("user.dir"), "src", "jmh", "fixtures", "tabby-fixture.jar"));
+
+    /**
+     * 与 Analyser 一致的 soot 配置，并载入 fixture jar 中的全部类
+     * @return fixture jar 中的类
+     */
+    public static List<SootClass> loadFixtureClasses(){
+        if(!new File(FIXTURE_JAR).exists()){
+            throw new IllegalStateException("Fixture jar not found: " + FIXTURE_JAR);
+        }
+        SootConfiguration.initSootOption();
+        Scene.v().loadBasicClasses();
+        Scene.v().setSootClassPath(FIXTURE_JAR);
+
+        List<SootClass> classes = new ArrayList<>();
+        for(String classname: SourceLocator.v().getClassesUnder(FIXTURE_JAR)){
+            SootClass cls = Scene.v().loadClassAndSupport(classname);
+            if(!cls.isPhantom()){
+                cls.setApplicationClass();
+                classes.add(cls);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 不依赖 spring 和 h2 的 DataContainer
+     * 内存中找不到时不再查询数据库，直接返回null
+     */
+    public static DataContainer newDataContainer(){
+        GlobalConfiguration.init();
+        DataContainer dataContainer = new DataContainer();
+        try{
+            dataContainer.setRulesContainer(new RulesContainer());
+        }catch (FileNotFoundException e){
+            throw new IllegalStateException(e);
+        }
+        dataContainer.setHierarchyContainer(new HierarchyContainer());
+        dataContainer.setMethodSummaryContainer(new MethodSummaryContainer());
+        dataContainer.setClassRefService(new ClassRefService(){
+            @Override
+            public ClassReference getClassRefByName(String name){
+                return null;
+            }
+        });
+        dataContainer.setMethodRefService(new MethodRefService(){
+            @Override
+            public MethodReference getMethodRefBySignature(String signature){
+                return null;
+            }
+        });
+        return dataContainer;
+    }
+}
@@ -0,0 +1,40 @@
+package tabby.core.collector;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import soot.SootClass;
+import tabby.core.Fixtures;
+import tabby.core.container.DataContainer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类信息抽取，每次操作抽取 fixture jar 中的全部类
+ * 包括父类、接口的查找，规则匹配以及函数基础信息的抽取
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClassInfoCollectorBenchmark {
+
+    private List<SootClass> classes;
+    private DataContainer dataContainer;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        classes = Fixtures.loadFixtureClasses();
+        dataContainer = Fixtures.newDataContainer();
+    }
+
+    @Benchmark
+    public void collect0(Blackhole blackhole){
+        for(SootClass cls:classes){
+            blackhole.consume(ClassInfoCollector.collect0(cls, dataContainer));
+        }
+        // 每次抽取都会新建has边，清理掉防止内存持续增长
+        dataContainer.getSavedHasNodes().clear();
+    }
+}
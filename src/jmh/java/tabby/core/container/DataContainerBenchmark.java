@@ -0,0 +1,99 @@
+package tabby.core.container;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tabby.dal.caching.bean.edge.Call;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataContainer 内存存储的并发读写
+ * synchronized 为原有的 Collections.synchronizedMap/Set 实现
+ * concurrent 为当前的 ConcurrentHashMap 实现
+ * @author wh1t3p1g
+ * @since 2023/2/10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DataContainerBenchmark {
+
+    private static final int SIZE = 100_000;
+
+    @Param({"synchronized", "concurrent"})
+    public String storage;
+
+    private DataContainer dataContainer;
+    private MethodReference[] methodRefs;
+    private Call[] calls;
+
+    @Setup(Level.Iteration)
+    public void setup(){
+        dataContainer = new DataContainer();
+        if("synchronized".equals(storage)){
+            dataContainer.setSavedClassRefs(Collections.synchronizedMap(new HashMap<>()));
+            dataContainer.setSavedMethodRefs(Collections.synchronizedMap(new HashMap<>()));
+            dataContainer.setSavedHasNodes(Collections.synchronizedSet(new HashSet<>()));
+            dataContainer.setSavedCallNodes(Collections.synchronizedSet(new HashSet<>()));
+            dataContainer.setSavedAliasNodes(Collections.synchronizedSet(new HashSet<>()));
+            dataContainer.setSavedExtendNodes(Collections.synchronizedSet(new HashSet<>()));
+            dataContainer.setSavedInterfacesNodes(Collections.synchronizedSet(new HashSet<>()));
+        }
+
+        methodRefs = new MethodReference[SIZE];
+        calls = new Call[SIZE];
+        for(int i = 0; i < SIZE; i++){
+            String classname = "bench.Class" + (i % 1000);
+            methodRefs[i] = MethodReference.newInstance("method" + i,
+                    String.format("<%s: void method%d(java.lang.String)>", classname, i));
+            methodRefs[i].setClassname(classname);
+            // 预先写入，保证查找均在内存中命中
+            dataContainer.store(methodRefs[i]);
+        }
+        for(int i = 0; i < SIZE; i++){
+            calls[i] = Call.newInstance(methodRefs[i], methodRefs[(i * 31 + 7) % SIZE]);
+            calls[i].setInvokerType("VirtualInvoke");
+            calls[i].setRealCallType(methodRefs[i].getClassname());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(SIZE);
+
+        public int next(){
+            index = index + 1 == SIZE ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    private void storeAndLookup(Cursor cursor, Blackhole blackhole){
+        int i = cursor.next();
+        dataContainer.store(methodRefs[i]);
+        dataContainer.store(calls[i]);
+        blackhole.consume(dataContainer.getMethodRefBySignature(methodRefs[(i * 7) % SIZE].getSignature()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads8(Cursor cursor, Blackhole blackhole){
+        storeAndLookup(cursor, blackhole);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16(Cursor cursor, Blackhole blackhole){
+        storeAndLookup(cursor, blackhole);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void threads32(Cursor cursor, Blackhole blackhole){
+        storeAndLookup(cursor, blackhole);
+    }
+}
@@ -0,0 +1,60 @@
+package tabby.core.container;
+
+import org.openjdk.jmh.annotations.*;
+import soot.*;
+import tabby.core.Fixtures;
+import tabby.core.collector.ClassInfoCollector;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用点上通过 SootMethodRef 查找 methodRef
+ * direct 为当前类中声明的函数，inherited 需要向父类查找
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataContainerLookupBenchmark {
+
+    private DataContainer dataContainer;
+    private SootMethodRef direct;
+    private SootMethodRef inherited;
+    private String signature;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        dataContainer = Fixtures.newDataContainer();
+        for(SootClass cls:Fixtures.loadFixtureClasses()){
+            dataContainer.store(ClassInfoCollector.collect0(cls, dataContainer));
+        }
+
+        SootClass chained = Scene.v().getSootClass("tabby.fixture.ChainedTransformer");
+        direct = chained.getMethodByName("transform").makeRef();
+        signature = direct.getSignature();
+        SootClass invoker = Scene.v().getSootClass("tabby.fixture.InvokerTransformer");
+        inherited = Scene.v().makeMethodRef(invoker, "getName",
+                Collections.emptyList(), RefType.v("java.lang.String"), false);
+        if(dataContainer.getMethodRefBySignature(inherited) == null){
+            throw new IllegalStateException("Fixture method not found: " + inherited.getSignature());
+        }
+    }
+
+    @Benchmark
+    public MethodReference bySignature(){
+        return dataContainer.getMethodRefBySignature(signature);
+    }
+
+    @Benchmark
+    public MethodReference direct(){
+        return dataContainer.getMethodRefBySignature(direct);
+    }
+
+    @Benchmark
+    public MethodReference inherited(){
+        return dataContainer.getMethodRefBySignature(inherited);
+    }
+}
@@ -0,0 +1,86 @@
+package tabby.core.data;
+
+import org.openjdk.jmh.annotations.*;
+import soot.G;
+import soot.Local;
+import soot.RefType;
+import soot.jimple.Jimple;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TabbyVariable 的深拷贝与状态合并
+ * 变量为 width 个字段、width 个数组元素，共 depth 层的对象树，叶子节点带污点
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TabbyVariableBenchmark {
+
+    @Param({"4", "16"})
+    public int width;
+
+    @Param({"1", "3"})
+    public int depth;
+
+    private TabbyVariable root;
+    private TabbyVariable polluted;
+    private TabbyVariable clean;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        G.reset();
+        Local local = Jimple.v().newLocal("r0", RefType.v("tabby.fixture.LazyMap"));
+        root = TabbyVariable.makeLocalInstance(local);
+        root.getValue().setPolluted(true);
+        root.getValue().setRelatedType(AccessPath.param(0));
+        fill(root, AccessPath.param(0), 1);
+
+        polluted = TabbyVariable.makeLocalInstance(local);
+        polluted.getValue().setPolluted(true);
+        for(int i = 0; i < width; i++){
+            polluted.getValue().getStatus().addType(AccessPath.param(i).append("<tabby.fixture.LazyMap: java.util.Map map>"));
+        }
+        clean = TabbyVariable.makeLocalInstance(local);
+        clean.getValue().getStatus().addType(AccessPath.THIS);
+    }
+
+    private void fill(TabbyVariable parent, AccessPath related, int level){
+        if(level > depth) return;
+        for(int i = 0; i < width; i++){
+            String field = "<bench.Node: java.lang.Object f" + i + ">";
+            TabbyVariable fieldVar = TabbyVariable.makeRandomInstance();
+            fieldVar.setName("f" + i);
+            fieldVar.getValue().setField(true);
+            if(level == depth){
+                fieldVar.getValue().setPolluted(true);
+                fieldVar.getValue().setRelatedType(related.append(field));
+            }
+            parent.assign(field, fieldVar);
+            fill(fieldVar, related.append(field), level + 1);
+
+            TabbyVariable element = TabbyVariable.makeRandomInstance();
+            element.setName("e" + i);
+            parent.assign(i, element);
+        }
+    }
+
+    @Benchmark
+    public TabbyVariable deepClone(){
+        return root.deepClone(new ArrayList<>());
+    }
+
+    /**
+     * flow set 合并时，先拷贝再合并两个分支的状态
+     */
+    @Benchmark
+    public TabbyVariable union(){
+        TabbyVariable target = TabbyVariable.makeRandomInstance();
+        target.union(clean);
+        target.union(polluted);
+        return target;
+    }
+}
@@ -0,0 +1,134 @@
+package tabby.core.toolkit;
+
+import org.openjdk.jmh.annotations.*;
+import soot.*;
+import soot.jimple.*;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+import tabby.core.Fixtures;
+import tabby.core.collector.ClassInfoCollector;
+import tabby.core.container.DataContainer;
+import tabby.core.data.Context;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个函数的指针分析
+ * 函数体为合成的jimple代码，由 blocks 个相同结构的代码块组成，每个代码块包含
+ * 字段读取、数组读写、两次接口调用以及一个分支合并，调用的 Transformer.transform 使用预设的 actions
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PollutedVarsPointsToAnalysisBenchmark {
+
+    private static final String CLASSNAME = "bench.Synthetic";
+
+    @Param({"8", "64"})
+    public int blocks;
+
+    private DataContainer dataContainer;
+    private MethodReference methodRef;
+    private JimpleBody body;
+    private UnitGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        dataContainer = Fixtures.newDataContainer();
+        for(SootClass cls:Fixtures.loadFixtureClasses()){
+            dataContainer.store(ClassInfoCollector.collect0(cls, dataContainer));
+        }
+        // 被调用函数直接使用摘要，不进行按需分析
+        SootClass transformer = Scene.v().getSootClass("tabby.fixture.Transformer");
+        MethodReference transform = dataContainer.getMethodRefBySignature(
+                transformer.getMethodByName("transform").getSignature());
+        transform.addAction("return", "param-0");
+        transform.setInitialed(true);
+        transform.setActionInitialed(true);
+
+        SootClass cls = makeSyntheticClass(transformer);
+        dataContainer.store(ClassInfoCollector.collect0(cls, dataContainer));
+        SootMethod method = cls.getMethodByName("process");
+        methodRef = dataContainer.getMethodRefBySignature(method.getSignature());
+        body = (JimpleBody) method.getActiveBody();
+        graph = new BriefUnitGraph(body);
+    }
+
+    private SootClass makeSyntheticClass(SootClass transformer){
+        SootClass cls = new SootClass(CLASSNAME, Modifier.PUBLIC);
+        cls.setSuperclass(Scene.v().getSootClass("java.lang.Object"));
+        Scene.v().addClass(cls);
+        cls.setApplicationClass();
+
+        RefType object = RefType.v("java.lang.Object");
+        ArrayType objects = ArrayType.v(object, 1);
+        SootField factory = new SootField("factory", transformer.getType());
+        SootField items = new SootField("items", objects);
+        cls.addField(factory);
+        cls.addField(items);
+
+        SootMethod method = new SootMethod("process", Arrays.asList(object, objects), object, Modifier.PUBLIC);
+        cls.addMethod(method);
+        JimpleBody body = Jimple.v().newBody(method);
+        method.setActiveBody(body);
+
+        Jimple jimple = Jimple.v();
+        Local self = newLocal(body, "this", cls.getType());
+        Local p0 = newLocal(body, "p0", object);
+        Local p1 = newLocal(body, "p1", objects);
+        Local cur = newLocal(body, "cur", object);
+        PatchingChain<Unit> units = body.getUnits();
+        units.add(jimple.newIdentityStmt(self, jimple.newThisRef(cls.getType())));
+        units.add(jimple.newIdentityStmt(p0, jimple.newParameterRef(object, 0)));
+        units.add(jimple.newIdentityStmt(p1, jimple.newParameterRef(objects, 1)));
+        units.add(jimple.newAssignStmt(cur, p0));
+
+        SootMethodRef transform = transformer.getMethodByName("transform").makeRef();
+        for(int k = 0; k < blocks; k++){
+            Local t = newLocal(body, "t" + k, transformer.getType());
+            Local e = newLocal(body, "e" + k, object);
+            Local a = newLocal(body, "a" + k, object);
+            Local b = newLocal(body, "b" + k, object);
+            Local arr = newLocal(body, "arr" + k, objects);
+            Unit otherwise = jimple.newNopStmt();
+            Unit join = jimple.newNopStmt();
+
+            units.add(jimple.newAssignStmt(t, jimple.newInstanceFieldRef(self, factory.makeRef())));
+            units.add(jimple.newAssignStmt(e, jimple.newArrayRef(p1, IntConstant.v(k))));
+            units.add(jimple.newAssignStmt(a, jimple.newInterfaceInvokeExpr(t, transform, cur)));
+            units.add(jimple.newIfStmt(jimple.newEqExpr(a, NullConstant.v()), otherwise));
+            units.add(jimple.newAssignStmt(b, jimple.newInterfaceInvokeExpr(t, transform, e)));
+            units.add(jimple.newAssignStmt(arr, jimple.newInstanceFieldRef(self, items.makeRef())));
+            units.add(jimple.newAssignStmt(jimple.newArrayRef(arr, IntConstant.v(k)), b));
+            units.add(jimple.newAssignStmt(cur, b));
+            units.add(jimple.newGotoStmt(join));
+            units.add(otherwise);
+            units.add(jimple.newAssignStmt(cur, a));
+            units.add(join);
+        }
+        units.add(jimple.newReturnStmt(cur));
+        body.validate();
+        return cls;
+    }
+
+    private static Local newLocal(Body body, String name, Type type){
+        Local local = Jimple.v().newLocal(name, type);
+        body.getLocals().add(local);
+        return local;
+    }
+
+    @Benchmark
+    public MethodReference analyse(){
+        Context context = Context.newInstance(methodRef.getSignature(), methodRef);
+        try{
+            PollutedVarsPointsToAnalysis.makeDefault(methodRef, body, graph, dataContainer, context, true);
+        }finally {
+            context.clear();
+        }
+        return methodRef;
+    }
+}
@@ -0,0 +1,141 @@
+package tabby.dal.caching.bean.edge;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.openjdk.jmh.annotations.*;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用边加入去重集合（callEdge、savedCallNodes）
+ * 合成的调用边中约 10% 与已有的边重复，但为不同的对象
+ * legacy 为原有的 EqualsBuilder/HashCodeBuilder 方式，cached 为缓存hash后的 Call
+ * hash 在首次插入时计算并缓存，与分析过程中先加入 callEdge 再加入 savedCallNodes 的情况一致
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class CallDedupBenchmark {
+
+    private static final String[] INVOKER_TYPES = {"VirtualInvoke", "InterfaceInvoke", "StaticInvoke", "SpecialInvoke"};
+    private static final int[][] POSITIONS = {{-1}, {-3, 0}, {-1, -3, 1}, {-3, -3, -3}, {0, 1, -3, 2}};
+
+    @State(Scope.Benchmark)
+    public static class Edges {
+
+        @Param({"10000000"})
+        public int edges;
+
+        public Call[] calls;
+
+        @Setup(Level.Trial)
+        public void setup(){
+            calls = generate(edges);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LegacyEdges {
+
+        @Param({"10000000"})
+        public int edges;
+
+        public LegacyCall[] calls;
+
+        @Setup(Level.Trial)
+        public void setup(){
+            Call[] generated = generate(edges);
+            calls = new LegacyCall[generated.length];
+            for(int i = 0; i < generated.length; i++){
+                calls[i] = new LegacyCall(generated[i]);
+            }
+        }
+    }
+
+    private static Call[] generate(int edges){
+        Random random = new Random(42);
+        int methods = Math.max(16, edges / 50);
+        MethodReference[] methodRefs = new MethodReference[methods];
+        String[] classnames = new String[Math.max(1, methods / 10)];
+        for(int i = 0; i < classnames.length; i++){
+            classnames[i] = "tabby.synthetic.Class" + i;
+        }
+        for(int i = 0; i < methods; i++){
+            methodRefs[i] = MethodReference.newInstance("method" + i,
+                    "<" + classnames[i % classnames.length] + ": void method" + i + "()>");
+        }
+        Call[] calls = new Call[edges];
+        for(int i = 0; i < edges; i++){
+            if(i > 0 && random.nextInt(10) == 0){
+                // 重复的边
+                Call origin = calls[random.nextInt(i)];
+                Call call = Call.newInstance(origin.getSource(), origin.getTarget());
+                call.setInvokerType(origin.getInvokerType());
+                call.setRealCallType(origin.getRealCallType());
+                call.setPollutedPosition(origin.getPollutedPosition().clone());
+                calls[i] = call;
+                continue;
+            }
+            Call call = Call.newInstance(methodRefs[random.nextInt(methods)], methodRefs[random.nextInt(methods)]);
+            call.setInvokerType(INVOKER_TYPES[random.nextInt(INVOKER_TYPES.length)]);
+            call.setRealCallType(classnames[random.nextInt(classnames.length)]);
+            call.setPollutedPosition(POSITIONS[random.nextInt(POSITIONS.length)]);
+            calls[i] = call;
+        }
+        return calls;
+    }
+
+    @Benchmark
+    public int cached(Edges state){
+        Set<Call> set = ConcurrentHashMap.newKeySet();
+        for(Call call:state.calls){
+            set.add(call);
+        }
+        return set.size();
+    }
+
+    @Benchmark
+    public int legacy(LegacyEdges state){
+        Set<LegacyCall> set = ConcurrentHashMap.newKeySet();
+        for(LegacyCall call:state.calls){
+            set.add(call);
+        }
+        return set.size();
+    }
+
+    /**
+     * 原有的 Call.equals/hashCode
+     */
+    public static class LegacyCall {
+
+        private final Call call;
+
+        public LegacyCall(Call call){
+            this.call = call;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Call other = ((LegacyCall) o).call;
+
+            return new EqualsBuilder().append(call.getSource().getId(), other.getSource().getId()).append(call.getTarget().getId(), other.getTarget().getId()).append(call.getInvokerType(), other.getInvokerType()).append(call.getRealCallType(), other.getRealCallType()).append(call.getPollutedPosition(), other.getPollutedPosition()).isEquals();
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder(17, 37).append(call.getSource().getId()).append(call.getTarget().getId()).append(call.getInvokerType()).append(call.getRealCallType()).append(call.getPollutedPosition()).toHashCode();
+        }
+    }
+}
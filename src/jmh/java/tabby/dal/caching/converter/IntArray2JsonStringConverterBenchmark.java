@@ -0,0 +1,77 @@
+package tabby.dal.caching.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调用边 pollutedPosition 的编码与解码
+ * gson* 为原有的 List<Integer> + gson 方式，intArray* 为替换后的 int[] 方式
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IntArray2JsonStringConverterBenchmark {
+
+    private static final int[][] POSITIONS = {
+            {-1},
+            {-3, 0},
+            {-1, -3, 1},
+            {-3, 0, 1, -3},
+            {0, -3, -3, 2, -1, -3},
+    };
+
+    private static final Gson gson = new Gson();
+    private static final Type TYPE = new TypeToken<List<Integer>>(){}.getType();
+
+    private final IntArray2JsonStringConverter converter = new IntArray2JsonStringConverter();
+    private List<List<Integer>> lists;
+    private String[] texts;
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        lists = new ArrayList<>();
+        texts = new String[POSITIONS.length];
+        for(int i = 0; i < POSITIONS.length; i++){
+            List<Integer> list = new ArrayList<>();
+            for(int pos:POSITIONS[i]){
+                list.add(pos);
+            }
+            lists.add(list);
+            texts[i] = gson.toJson(list);
+        }
+    }
+
+    private int next(){
+        index = (index + 1) % POSITIONS.length;
+        return index;
+    }
+
+    @Benchmark
+    public String gsonEncode(){
+        return gson.toJson(lists.get(next()));
+    }
+
+    @Benchmark
+    public List<Integer> gsonDecode(){
+        return gson.fromJson(texts[next()], TYPE);
+    }
+
+    @Benchmark
+    public String intArrayEncode(){
+        return converter.convertToDatabaseColumn(POSITIONS[next()]);
+    }
+
+    @Benchmark
+    public int[] intArrayDecode(){
+        return converter.convertToEntityAttribute(texts[next()]);
+    }
+}
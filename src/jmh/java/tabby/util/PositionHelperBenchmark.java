@@ -0,0 +1,75 @@
+package tabby.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tabby.core.data.AccessPath;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 污点位置的解析与格式化
+ * parse、concat 为原有的字符串方式，accessPath* 为替换后的 AccessPath 方式
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PositionHelperBenchmark {
+
+    private static final String[] RELATED_TYPES = {
+            "this",
+            "param-0",
+            "param-12",
+            "source",
+            "this|<tabby.fixture.LazyMap: tabby.fixture.Transformer factory>",
+            "param-1|<tabby.fixture.TiedMapEntry: java.util.Map map>|<tabby.fixture.LazyMap: java.util.Map map>",
+            "param-0|<tabby.fixture.InvokerTransformer: java.lang.Object[] args>|<tabby.fixture.ChainedTransformer: tabby.fixture.Transformer[] transformers>",
+            "source|<tabby.fixture.CommandRunner: java.lang.String[] command>",
+    };
+
+    private static final int[] POSITIONS = {-1, -2, -3, 0, 1, 2, 7, 12};
+
+    private static final String FIELD = "<tabby.fixture.LazyMap: java.util.Map map>";
+
+    private AccessPath[] paths;
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        paths = new AccessPath[RELATED_TYPES.length];
+        for(int i = 0; i < RELATED_TYPES.length; i++){
+            paths[i] = AccessPath.parse(RELATED_TYPES[i]);
+        }
+    }
+
+    private int next(){
+        index = index + 1 == RELATED_TYPES.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public int parse(){
+        return PositionHelper.getPosition(RELATED_TYPES[next()]);
+    }
+
+    @Benchmark
+    public String concat(){
+        return RELATED_TYPES[next()] + "|" + FIELD;
+    }
+
+    @Benchmark
+    public int accessPathPosition(){
+        return paths[next()].getPosition();
+    }
+
+    @Benchmark
+    public AccessPath accessPathAppend(){
+        return paths[next()].append(FIELD);
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole){
+        blackhole.consume(PositionHelper.getPosition(POSITIONS[next()]));
+    }
+}
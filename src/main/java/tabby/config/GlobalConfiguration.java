@@ -37,6 +37,11 @@ public class GlobalConfiguration {
     public static String HAS_RELATIONSHIP_OUTPUT_PATH;
     public static String INTERFACE_RELATIONSHIP_OUTPUT_PATH;
     public static boolean IS_DOCKER_IMPORT_PATH = false;
+    public static boolean IS_BULK_IMPORT_FORMAT = false;
+    public static boolean IS_STREAMING_CSV = true;
+    public static boolean IS_INCREMENTAL_BUILD = false;
+    public static boolean IS_METHOD_SUMMARY_CACHE = false;
+    public static String INCREMENTAL_CACHE_DIRECTORY = "./cache";
     public static Gson GSON = new Gson();
     public static boolean DEBUG = false;
     public static int TIMEOUT = 2;
@@ -59,13 +64,22 @@ public class GlobalConfiguration {
     public static boolean IS_EXCLUDE_JDK = false;
     public static boolean IS_WITH_ALL_JDK = false;
     public static boolean IS_CHECK_FAT_JAR = false;
+    public static boolean IS_VIRTUAL_CLASSPATH = true;
+    public static boolean IS_PARALLEL_JSP_COMPILE = true;
+    public static int JSP_BATCH_SIZE = 20;
     public static boolean IS_FULL_CALL_GRAPH_CONSTRUCT = false;
+    public static boolean IS_PARALLEL_CLASS_EDGES_CREATE = true;
+    public static boolean IS_BOTTOM_UP_SCHEDULE = true;
+    // 单个函数的分析预算，<=0 表示不限制
+    public static int BUDGET_UNITS = 500000;
+    public static int BUDGET_TIME = 60;
+    public static int BUDGET_DEPTH = 32;
     public static boolean IS_NEED_TO_CREATE_IGNORE_LIST = true;
     private static Properties props;
     public static boolean isInitialed = false;
-    public static boolean isNeedStop = false;
 
     public static String THREAD_POOL_SIZE = "max";
+    public static String HASH_ALGORITHM = "md5";
 
     public static void init(){
         if(props == null){
@@ -117,6 +131,11 @@ public class GlobalConfiguration {
         IS_LOAD_ENABLE = getBooleanProperty("tabby.load.enable", "false", props);
         IS_BUILD_ENABLE = getBooleanProperty("tabby.build.enable", "false", props);
         IS_DOCKER_IMPORT_PATH = getBooleanProperty("tabby.cache.isDockerImportPath", "false", props);
+        IS_BULK_IMPORT_FORMAT = getBooleanProperty("tabby.output.isBulkImportFormat", "false", props);
+        IS_STREAMING_CSV = getBooleanProperty("tabby.cache.isStreamingCSV", "true", props);
+        IS_INCREMENTAL_BUILD = getBooleanProperty("tabby.cache.isIncrementalBuild", "false", props);
+        IS_METHOD_SUMMARY_CACHE = getBooleanProperty("tabby.cache.isMethodSummaryCache", "false", props);
+        INCREMENTAL_CACHE_DIRECTORY = getProperty("tabby.cache.incremental.directory", "./cache", props);
 
         if(!FileUtils.fileExists(OUTPUT_DIRECTORY)){
             FileUtils.createDirectory(OUTPUT_DIRECTORY);
@@ -152,13 +171,28 @@ public class GlobalConfiguration {
         }
 
         IS_CHECK_FAT_JAR = getBooleanProperty("tabby.build.checkFatJar", "false", props);
+        IS_VIRTUAL_CLASSPATH = getBooleanProperty("tabby.build.isVirtualClasspath", "true", props);
+        IS_PARALLEL_JSP_COMPILE = getBooleanProperty("tabby.build.jsp.isParallelCompile", "true", props);
         IS_FULL_CALL_GRAPH_CONSTRUCT = getBooleanProperty("tabby.build.isFullCallGraphCreate", "false", props);
+        IS_PARALLEL_CLASS_EDGES_CREATE = getBooleanProperty("tabby.build.isParallelClassEdgesCreate", "true", props);
+        IS_BOTTOM_UP_SCHEDULE = getBooleanProperty("tabby.build.isBottomUpSchedule", "true", props);
         IS_NEED_TO_CREATE_IGNORE_LIST = getBooleanProperty("tabby.build.isNeedToCreateIgnoreList", "true", props);
+        HASH_ALGORITHM = getProperty("tabby.build.hash.algorithm", "md5", props).toLowerCase();
 
         try{
             TIMEOUT = getIntProperty("tabby.build.thread.timeout", "2", props);
         }catch (Exception ignore){
         }
+        try{
+            BUDGET_UNITS = getIntProperty("tabby.build.budget.units", "500000", props);
+            BUDGET_TIME = getIntProperty("tabby.build.budget.time", "60", props);
+            BUDGET_DEPTH = getIntProperty("tabby.build.budget.depth", "32", props);
+        }catch (Exception ignore){
+        }
+        try{
+            JSP_BATCH_SIZE = getIntProperty("tabby.build.jsp.batchSize", "20", props);
+        }catch (Exception ignore){
+        }
 
         // 支持绝对路径 issue 7
         if(!IS_JDK_ONLY && TARGET != null && !FileUtils.fileExists(TARGET)){
@@ -12,15 +12,23 @@ import tabby.config.GlobalConfiguration;
 import tabby.config.SootConfiguration;
 import tabby.core.collector.FileCollector;
 import tabby.core.container.DataContainer;
+import tabby.core.container.IncrementalCacheContainer;
+import tabby.core.container.MethodSummaryContainer;
 import tabby.core.container.RulesContainer;
+import tabby.core.data.AccessPath;
+import tabby.core.pipeline.RunReport;
+import tabby.core.pipeline.StagePipeline;
 import tabby.core.scanner.CallGraphScanner;
 import tabby.core.scanner.ClassInfoScanner;
+import tabby.util.FileHasher;
 import tabby.util.FileUtils;
+import tabby.util.Metrics;
+import tabby.util.Symbols;
+import tabby.util.VirtualClasspath;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static soot.SootClass.HIERARCHY;
@@ -44,65 +52,108 @@ public class Analyser {
     private RulesContainer rulesContainer;
     @Autowired
     private FileCollector fileCollector;
+    @Autowired
+    private IncrementalCacheContainer incrementalCacheContainer;
+    @Autowired
+    private MethodSummaryContainer methodSummaryContainer;
 
 
-    public void run() throws IOException {
+    public void run() {
         boolean buildEnabled = GlobalConfiguration.IS_BUILD_ENABLE;
         boolean loadEnabled = GlobalConfiguration.IS_LOAD_ENABLE;
-        Future<Boolean> future = null;
-        if(loadEnabled){ // 用线程先删除neo4j中老数据
-            future = dataContainer.cleanAll();
-            if(!buildEnabled){
-                while (!future.isDone()){
-                    // do nothing 等待结束
-                }
-            }
+        Map<String, String> targets = new HashMap<>();
+        Map<String, String> cps = new HashMap<>();
+        StagePipeline pipeline = new StagePipeline();
+        List<String> loadDependencies = new ArrayList<>();
+
+        if(loadEnabled){ // 用单独的stage先删除neo4j中老数据，与build阶段并行
+            pipeline.addStage("clean", dataContainer::cleanAll);
+            loadDependencies.add("clean");
         }
 
         if(buildEnabled){
-            Map<String, String> dependencies = fileCollector.collectJdkDependencies();
-
-            log.info("Get {} JDK dependencies", dependencies.size());
-            log.info("Try to collect all targets");
-
-            Map<String, String> cps = GlobalConfiguration.IS_EXCLUDE_JDK ? new HashMap<>():new HashMap<>(dependencies);
-            Map<String, String> targets = new HashMap<>();
-            // 收集目标
-            GlobalConfiguration.rulesContainer = rulesContainer;
-            if(!GlobalConfiguration.IS_JDK_ONLY){
-                Map<String, String> files = fileCollector.collect(GlobalConfiguration.TARGET);
-                cps.putAll(files);
-                targets.putAll(files);
-            }
+            pipeline.addStage("collect", () -> collect(targets, cps));
+            pipeline.addStage("build",
+                    () -> runSootAnalysis(targets, new ArrayList<>(cps.values())), "collect");
+            pipeline.addStage("export", () -> {
+                dataContainer.count();
+                dataContainer.save2CSV();
+            }, "build");
+            loadDependencies.add("export");
+        }
 
-            if(GlobalConfiguration.IS_JDK_ONLY
-                    || GlobalConfiguration.IS_JDK_PROCESS){
-                targets.putAll(dependencies);
-            }
+        if(loadEnabled){
+            pipeline.addStage("load", () -> {
+                G.reset();
+                save();
+            }, loadDependencies.toArray(new String[0]));
+        }
 
-            // 添加必要的依赖，防止信息缺失，比如servlet依赖
-            if(FileUtils.fileExists(GlobalConfiguration.LIBS_PATH)){
-                Map<String, String> files = fileCollector.collect(GlobalConfiguration.LIBS_PATH);
-                GlobalConfiguration.libraries.putAll(files);
-            }
+        RunReport report = new RunReport();
+        try{
+            pipeline.run();
+        }catch (RuntimeException e){
+            report.setError(e);
+            throw e;
+        }finally {
+            report.write(pipeline.getStages());
+        }
+    }
 
-            for(Map.Entry<String, String> entry:GlobalConfiguration.libraries.entrySet()){
-                cps.putIfAbsent(entry.getKey(), entry.getValue());
-            }
+    /**
+     * 收集待分析的目标和classpath
+     * @param targets 需要分析的目标
+     * @param cps 所有的classpath
+     * @throws IOException
+     */
+    public void collect(Map<String, String> targets, Map<String, String> cps) throws IOException {
+        long start = System.nanoTime();
+        Map<String, String> dependencies = fileCollector.collectJdkDependencies();
+
+        log.info("Get {} JDK dependencies", dependencies.size());
+        log.info("Try to collect all targets");
 
-            runSootAnalysis(targets, new ArrayList<>(cps.values()));
-            dataContainer.count();
-            dataContainer.save2CSV();
+        if(!GlobalConfiguration.IS_EXCLUDE_JDK){
+            cps.putAll(dependencies);
+        }
+        // 收集目标
+        GlobalConfiguration.rulesContainer = rulesContainer;
+        if(!GlobalConfiguration.IS_JDK_ONLY){
+            Map<String, String> files = fileCollector.collect(GlobalConfiguration.TARGET);
+            cps.putAll(files);
+            targets.putAll(files);
         }
 
-        if(loadEnabled){
-            G.reset();
-            if(future != null){
-                while (!future.isDone()){
-                    // do nothing 等待结束
-                }
+        if(GlobalConfiguration.IS_JDK_ONLY
+                || GlobalConfiguration.IS_JDK_PROCESS){
+            targets.putAll(dependencies);
+        }
+
+        // 添加必要的依赖，防止信息缺失，比如servlet依赖
+        if(FileUtils.fileExists(GlobalConfiguration.LIBS_PATH)){
+            Map<String, String> files = fileCollector.collect(GlobalConfiguration.LIBS_PATH);
+            GlobalConfiguration.libraries.putAll(files);
+        }
+
+        for(Map.Entry<String, String> entry:GlobalConfiguration.libraries.entrySet()){
+            cps.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        FileHasher.save();
+        Metrics.timer("phase.files").record(System.nanoTime() - start);
+        Metrics.counter("files.targets").add(targets.size());
+        Metrics.counter("files.classpaths").add(cps.size());
+
+        if(incrementalCacheContainer.isEnabled()){
+            incrementalCacheContainer.setClasspaths(cps, targets);
+        }
+
+        if(methodSummaryContainer.isEnabled()){
+            // jdk及依赖库的函数摘要
+            Map<String, String> libraries = new HashMap<>(GlobalConfiguration.libraries);
+            if(!GlobalConfiguration.IS_EXCLUDE_JDK){
+                libraries.putAll(dependencies);
             }
-            save();
+            methodSummaryContainer.load(libraries, targets);
         }
     }
 
@@ -110,14 +161,28 @@ public class Analyser {
         try{
             SootConfiguration.initSootOption();
             addBasicClasses();
-            log.info("Load basic classes");
-            Scene.v().loadBasicClasses();
-            log.info("Load dynamic classes");
-            Scene.v().loadDynamicClasses();
-            Scene.v().setSootClassPath(String.join(File.pathSeparator, new HashSet<>(classpaths)));
+            Metrics.time("phase.basicClasses", () -> {
+                log.info("Load basic classes");
+                Scene.v().loadBasicClasses();
+                log.info("Load dynamic classes");
+                Scene.v().loadDynamicClasses();
+            });
+            // 虚拟classpath不在soot classpath中，通过追加的类查找方式加载
+            Set<String> realClasspaths = new HashSet<>();
+            for(String cp:classpaths){
+                if(!VirtualClasspath.isVirtual(cp)){
+                    realClasspaths.add(cp);
+                }
+            }
+            Scene.v().setSootClassPath(String.join(File.pathSeparator, realClasspaths));
+            VirtualClasspath.install();
             // get target filepath
             List<String> realTargets = getTargets(targets);
             if(realTargets.isEmpty()){
+                if(!dataContainer.getSavedMethodRefs().isEmpty()){
+                    // 所有目标都从缓存中加载，直接保存
+                    callGraphScanner.save();
+                }
                 log.info("Nothing to analysis!");
                 return;
             }
@@ -128,6 +193,7 @@ public class Analyser {
             classInfoScanner.run(realTargets);
             // 全量函数调用图构建
             callGraphScanner.run();
+            incrementalCacheContainer.commit();
 
             rulesContainer.saveStatus();
             long time = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
@@ -142,21 +208,39 @@ public class Analyser {
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            VirtualClasspath.close();
+            Symbols.clear(); // 分析结束后不再需要去重，已去重的字符串仍由各节点持有
+            AccessPath.clear();
+            dataContainer.clearActionSummaries();
         }
     }
 
     public List<String> getTargets(Map<String, String> targets){
-        Set<String> stuff = new HashSet<>();
+        Map<String, String> candidates = new HashMap<>();
         List<String> newIgnore = new ArrayList<>();
         targets.forEach((filename, filepath) -> {
             if(!rulesContainer.isIgnore(filename)){
-                stuff.add(filepath);
+                candidates.put(filename, filepath);
                 newIgnore.add(filename);
             }
         });
         rulesContainer.getIgnored().addAll(newIgnore);
+        Set<String> stuff;
+        if(incrementalCacheContainer.isEnabled()){
+            // 未变化的目标直接从缓存中加载
+            stuff = new HashSet<>(incrementalCacheContainer.load(candidates, dataContainer).values());
+        }else{
+            stuff = new HashSet<>(candidates.values());
+        }
         log.info("Total analyse {} targets.", stuff.size());
-        Options.v().set_process_dir(new ArrayList<>(stuff));
+        List<String> processDirs = new ArrayList<>();
+        for(String target:stuff){
+            if(!VirtualClasspath.isVirtual(target)){
+                processDirs.add(target);
+            }
+        }
+        Options.v().set_process_dir(processDirs);
         return new ArrayList<>(stuff);
     }
 
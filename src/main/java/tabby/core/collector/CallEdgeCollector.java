@@ -10,9 +10,11 @@ import soot.jimple.InvokeExpr;
 import soot.jimple.JimpleBody;
 import soot.jimple.Stmt;
 import tabby.core.container.DataContainer;
+import tabby.core.data.AnalysisBudget;
 import tabby.core.model.DefaultInvokeModel;
-import tabby.core.switcher.Switcher;
+import tabby.core.toolkit.BodyRetriever;
 import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.util.Metrics;
 import tabby.util.TickTock;
 
 /**
@@ -25,6 +27,10 @@ public class CallEdgeCollector {
 
     @Async("tabby-collector")
     public void collect(MethodReference methodRef, DataContainer dataContainer, TickTock tickTock){
+        if(AnalysisBudget.isStopped()){ // 已经全局超时，排队中的任务不再分析
+            tickTock.countDown();
+            return;
+        }
         try{
             SootMethod method = methodRef.getMethod();
             if(method == null) {
@@ -53,7 +59,8 @@ public class CallEdgeCollector {
                 return;
             }
 
-            JimpleBody body = (JimpleBody) Switcher.retrieveBody(method, method.getSignature());
+            long start = System.nanoTime();
+            JimpleBody body = (JimpleBody) BodyRetriever.retrieve(method, method.getSignature());
             if(body == null) {
                 tickTock.countDown();
                 return;
@@ -70,6 +77,7 @@ public class CallEdgeCollector {
                     model.apply(stmt, false, methodRef, targetMethodRef, dataContainer);
                 }
             }
+            Metrics.timer("method.analysis").record(System.nanoTime() - start);
         }catch (RuntimeException e){
 //            log.error(e.getMessage());
             log.error("Something error on call graph. "+methodRef.getSignature());
@@ -2,16 +2,26 @@ package tabby.core.collector;
 
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import soot.Modifier;
 import soot.SootMethod;
 import tabby.core.container.DataContainer;
+import tabby.core.data.AnalysisBudget;
 import tabby.core.data.Context;
 import tabby.core.switcher.Switcher;
+import tabby.core.toolkit.CallGraphScheduler;
 import tabby.core.toolkit.PollutedVarsPointsToAnalysis;
 import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.util.Metrics;
 import tabby.util.TickTock;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author wh1t3P1g
  * @since 2021/4/23
@@ -21,12 +31,97 @@ import tabby.util.TickTock;
 @Setter
 public class CallGraphCollector {
 
-//    @Async("tabby-collector")
+    /**
+     * 递归调用的SCC迭代分析至actions不再变化
+     * actions 不保证单调变化，该次数仅用于防止来回变化时无法结束，达到后记录 callGraph.iterationLimit
+     */
+    private static final int MAX_ITERATION = 32;
+
+    @Async("tabby-collector")
     public void collect(MethodReference methodRef, DataContainer dataContainer, TickTock tickTock){
+        collect(methodRef, dataContainer);
+        tickTock.countDown();
+    }
+
+    /**
+     * 分析一个强连通分量
+     * 存在递归调用时，迭代分析直到分量内函数的actions不再变化
+     */
+    @Async("tabby-collector")
+    public void collect(CallGraphScheduler.Component component, DataContainer dataContainer, TickTock tickTock){
+        try{
+            List<MethodReference> methods = component.getMethods();
+            // 规则或摘要中已经给出actions的函数，actions不会改变，不参与迭代
+            List<MethodReference> pending = new ArrayList<>();
+            for(MethodReference methodRef:methods){
+                if(!methodRef.isActionInitialed()){
+                    pending.add(methodRef);
+                }
+            }
+
+            Map<Long, Map<String, String>> last = snapshot(pending);
+            for(MethodReference methodRef:methods){
+                collect(methodRef, dataContainer);
+            }
+            if(!component.isRecursive()) return;
+
+            // 跳过的函数（sink、没有body等）没有被分析，重新分析也不会变化
+            List<MethodReference> iterated = new ArrayList<>();
+            for(MethodReference methodRef:pending){
+                if(methodRef.isActionInitialed()){
+                    iterated.add(methodRef);
+                }
+            }
+            for(int i = 1; ; i++){
+                Map<Long, Map<String, String>> current = snapshot(pending);
+                if(current.equals(last)) break;
+                if(i >= MAX_ITERATION){
+                    Metrics.counter("callGraph.iterationLimit").increment();
+                    log.debug("Component with {} methods did not converge after {} iterations", methods.size(), i);
+                    break;
+                }
+                last = current;
+                for(MethodReference methodRef:iterated){
+                    reanalyse(methodRef, dataContainer);
+                }
+            }
+        }finally {
+            tickTock.countDown();
+        }
+    }
+
+    /**
+     * 重新分析分量内的一个函数
+     * 先清除上一轮的actions和调用边，未收敛时产生的结果不会残留到最终结果中
+     * 分量内的其他函数保持已分析的状态，直接使用其最新的actions；递归调用自身时使用上一轮的actions
+     */
+    private void reanalyse(MethodReference methodRef, DataContainer dataContainer){
+        dataContainer.pinActionSummary(methodRef);
+        try{
+            dataContainer.removeCallEdges(methodRef);
+            methodRef.setActions(new ConcurrentHashMap<>());
+            methodRef.setInitialed(false);
+            methodRef.setActionInitialed(false);
+            collect(methodRef, dataContainer);
+        }finally {
+            dataContainer.unpinActionSummary(methodRef);
+        }
+    }
+
+    private Map<Long, Map<String, String>> snapshot(List<MethodReference> methods){
+        Map<Long, Map<String, String>> snapshot = new HashMap<>();
+        for(MethodReference methodRef:methods){
+            Map<String, String> actions = methodRef.getActions();
+            snapshot.put(methodRef.getId(), actions == null ? new HashMap<>() : new HashMap<>(actions));
+        }
+        return snapshot;
+    }
+
+    private void collect(MethodReference methodRef, DataContainer dataContainer){
+        if(AnalysisBudget.isStopped()) return; // 已经全局超时，排队中的任务不再分析
         try{
             SootMethod method = methodRef.getMethod();
             if(method == null) {
-                tickTock.countDown();
                 return; // 提取不出内容，不分析
             }
 
@@ -34,7 +129,6 @@ public class CallGraphCollector {
                     || methodRef.isIgnore() || method.isAbstract()
                     || Modifier.isNative(method.getModifiers())){
                 methodRef.setInitialed(true);
-                tickTock.countDown();
                 return; // sink点为不动点，无需分析该函数内的调用情况  native/抽象函数没有具体的body
             }
 
@@ -42,19 +136,23 @@ public class CallGraphCollector {
                 // 静态函数 且 函数入参数量为0 此类函数
                 // 对于反序列化来说 均不可控 不进行分析
                 methodRef.setInitialed(true);
-                tickTock.countDown();
                 return;
             }
 
             log.debug(method.getDeclaringClass().getName()+" "+method.getName());
 
+            // 耗时包括按需分析的被调用函数
+            long start = System.nanoTime();
             Context context = Context.newInstance(method.getSignature(), methodRef);
-
-            PollutedVarsPointsToAnalysis pta =
-                    Switcher.doMethodAnalysis(
-                            context, dataContainer,
-                            method, methodRef);
-            context.clear();
+            try{
+                PollutedVarsPointsToAnalysis pta =
+                        Switcher.doMethodAnalysis(
+                                context, dataContainer,
+                                method, methodRef);
+            }finally {
+                context.clear();
+                Metrics.timer("method.analysis").record(System.nanoTime() - start);
+            }
         }catch (RuntimeException e){
             e.printStackTrace();
         }catch (Exception e){
@@ -65,7 +163,6 @@ public class CallGraphCollector {
                 e.printStackTrace();
             }
         }
-        tickTock.countDown();
     }
 
 }
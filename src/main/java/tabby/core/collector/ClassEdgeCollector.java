@@ -0,0 +1,42 @@
+package tabby.core.collector;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import tabby.core.container.DataContainer;
+import tabby.core.scanner.ClassInfoScanner;
+import tabby.dal.caching.bean.ref.ClassReference;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 按分片提取类之间的关联信息 Extend/Interfaces/Alias
+ * 每个类只会出现在一个分片中，所以类自身的边只会被一个线程修改
+ * @author wh1t3p1g
+ * @since 2023/2/7
+ */
+@Slf4j
+@Service
+public class ClassEdgeCollector {
+
+    @Autowired
+    private DataContainer dataContainer;
+
+    @Async("tabby-collector")
+    public CompletableFuture<Integer> collect(List<String> classes){
+        int counter = 0;
+        for(String cls:classes){
+            try{
+                ClassReference clsRef = dataContainer.getClassRefByName(cls);
+                if(clsRef == null) continue;
+                ClassInfoScanner.extractRelationships(clsRef, dataContainer, 0);
+                counter++;
+            }catch (Exception e){
+                log.error("Build edges error: {}, Message: {}", cls, e.getMessage());
+            }
+        }
+        return CompletableFuture.completedFuture(counter);
+    }
+}
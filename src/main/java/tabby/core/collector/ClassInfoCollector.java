@@ -41,14 +41,16 @@ public class ClassInfoCollector {
      */
     public static ClassReference collect0(SootClass cls, DataContainer dataContainer){
         ClassReference classRef = ClassReference.newInstance(cls);
-        Set<String> relatedClassnames = getAllFatherNodes(cls);
+        Set<String> relatedClassnames = dataContainer.getHierarchyContainer().getAllFatherNodes(cls);
         classRef.setSerializable(relatedClassnames.contains("java.io.Serializable"));
         classRef.setStrutsAction(relatedClassnames.contains("com.opensymphony.xwork2.ActionSupport")
                 || relatedClassnames.contains("com.opensymphony.xwork2.Action"));
         // 提取类函数信息
         if(cls.getMethodCount() > 0){
+            Map<String, TabbyRule.Rule> inheritedIgnoreRules =
+                    dataContainer.getRulesContainer().getInheritedIgnoreRules(relatedClassnames);
             for (SootMethod method : cls.getMethods()) {
-                extractMethodInfo(method, classRef, relatedClassnames, dataContainer);
+                extractMethodInfo(method, classRef, relatedClassnames, inheritedIgnoreRules, dataContainer);
             }
         }
         return classRef;
@@ -59,10 +61,12 @@ public class ClassInfoCollector {
      * 提取函数基础信息，并保存到内存中
      * @param method
      * @param ref
+     * @param inheritedIgnoreRules 父类和接口上的ignore规则
      */
     public static void extractMethodInfo(SootMethod method,
                                          ClassReference ref,
                                          Set<String> relatedClassnames,
+                                         Map<String, TabbyRule.Rule> inheritedIgnoreRules,
                                          DataContainer dataContainer
     ){
         RulesContainer rulesContainer = dataContainer.getRulesContainer();
@@ -71,13 +75,7 @@ public class ClassInfoCollector {
         TabbyRule.Rule rule = rulesContainer.getRule(classname, methodRef.getName());
 
         if (rule == null) { // 对于ignore类型，支持多级父类和接口的规则查找
-            for (String relatedClassname : relatedClassnames) {
-                TabbyRule.Rule tmpRule = rulesContainer.getRule(relatedClassname, methodRef.getName());
-                if (tmpRule != null && tmpRule.isIgnore()) {
-                    rule = tmpRule;
-                    break;
-                }
-            }
+            rule = inheritedIgnoreRules.get(methodRef.getName());
         }
         boolean isSink = false;
         boolean isIgnore = false;
@@ -92,12 +90,12 @@ public class ClassInfoCollector {
             // 对于source类型 不赋予其actions和polluted
             if (!isSource) {
                 Map<String, String> actions = rule.getActions();
-                List<Integer> polluted = rule.getPolluted();
+                int[] polluted = rule.getPolluted();
                 if(isSink){
                     methodRef.setVul(rule.getVul());
                 }
                 methodRef.setActions(actions!=null?actions:new HashMap<>());
-                methodRef.setPollutedPosition(polluted!=null?polluted:new ArrayList<>());
+                methodRef.setPollutedPosition(polluted!=null?polluted:new int[0]);
                 methodRef.setActionInitialed(true);
                 if(isIgnore){// 不构建ignore的类型
                     methodRef.setInitialed(true);
@@ -117,6 +115,9 @@ public class ClassInfoCollector {
         methodRef.setHasDefaultConstructor(ref.isHasDefaultConstructor());
         methodRef.setFromAbstractClass(ref.isAbstract());
 
+        // 依赖库中的函数优先使用已缓存的摘要
+        dataContainer.getMethodSummaryContainer().apply(methodRef);
+
         Has has = Has.newInstance(ref, methodRef);
         ref.getHasEdge().add(has);
         dataContainer.store(has);
@@ -225,20 +226,4 @@ public class ClassInfoCollector {
 
         return false;
     }
-
-
-    public static Set<String> getAllFatherNodes(SootClass cls){
-        Set<String> nodes = new HashSet<>();
-        if(cls.hasSuperclass() && !cls.getSuperclass().getName().equals("java.lang.Object")){
-            nodes.add(cls.getSuperclass().getName());
-            nodes.addAll(getAllFatherNodes(cls.getSuperclass()));
-        }
-        if(cls.getInterfaceCount() > 0){
-            cls.getInterfaces().forEach(intface -> {
-                nodes.add(intface.getName());
-                nodes.addAll(getAllFatherNodes(intface));
-            });
-        }
-        return nodes;
-    }
 }
\ No newline at end of file
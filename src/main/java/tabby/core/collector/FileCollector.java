@@ -3,17 +3,17 @@ package tabby.core.collector;
 import org.springframework.stereotype.Service;
 import tabby.config.GlobalConfiguration;
 import tabby.core.data.FileLocation;
+import tabby.util.FileHasher;
 import tabby.util.FileUtils;
 import tabby.util.JavaVersion;
+import tabby.util.VirtualClasspath;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author wh1t3p1g
@@ -30,18 +30,22 @@ public class FileCollector {
         }
         FileLocation location = new FileLocation(path);
         Set<String> cps = location.resolve();
+        List<String> files = new ArrayList<>();
         for(String cp:cps){
-            Path temp = Paths.get(cp);
-            if(Files.isDirectory(temp)){
+            if(VirtualClasspath.isDirectory(cp) || Files.isDirectory(Paths.get(cp))){
                 allTargets.put(cp, cp);
             }else{
-                String filename = temp.getFileName().toString();
-                String fileMd5 = FileUtils.getFileMD5(cp);
-                if(GlobalConfiguration.IS_WEB_MODE && GlobalConfiguration.rulesContainer.isInCommonJarList(filename)){
-                    GlobalConfiguration.libraries.put(fileMd5, cp);
-                }else{
-                    allTargets.put(fileMd5, cp);
-                }
+                files.add(cp);
+            }
+        }
+        Map<String, String> hashes = FileHasher.hash(files);
+        for(String cp:files){
+            String filename = Paths.get(cp).getFileName().toString();
+            String fileHash = hashes.get(cp);
+            if(GlobalConfiguration.IS_WEB_MODE && GlobalConfiguration.rulesContainer.isInCommonJarList(filename)){
+                GlobalConfiguration.libraries.put(fileHash, cp);
+            }else{
+                allTargets.put(fileHash, cp);
             }
         }
         return allTargets;
@@ -60,7 +64,7 @@ public class FileCollector {
                 String path = javaHome+"/jmods/java.base.jmod";
                 File file = new File(path);
                 if(file.exists()){
-                    allJdkDependencies.put(FileUtils.getFileMD5(file), path);
+                    allJdkDependencies.put(FileHasher.hash(path), path);
                 }
             }
         }else{ // jdk <= 8
@@ -73,7 +77,7 @@ public class FileCollector {
                     String path = String.join(File.separator, javaHome, cp);
                     File file = new File(path);
                     if(file.exists()){
-                        allJdkDependencies.put(FileUtils.getFileMD5(file), path);
+                        allJdkDependencies.put(FileHasher.hash(path), path);
                     }
                 }
             }
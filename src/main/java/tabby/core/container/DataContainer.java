@@ -4,25 +4,28 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Component;
 import soot.SootClass;
 import soot.SootMethod;
 import soot.SootMethodRef;
+import tabby.config.GlobalConfiguration;
+import tabby.core.data.ActionSummary;
 import tabby.core.scanner.ClassInfoScanner;
 import tabby.dal.caching.bean.edge.*;
 import tabby.dal.caching.bean.ref.ClassReference;
 import tabby.dal.caching.bean.ref.MethodReference;
 import tabby.dal.caching.service.ClassRefService;
+import tabby.dal.caching.service.CsvSinkService;
 import tabby.dal.caching.service.MethodRefService;
 import tabby.dal.caching.service.RelationshipsService;
+import tabby.dal.neo4j.service.BulkImportService;
 import tabby.dal.neo4j.service.ClassService;
 import tabby.dal.neo4j.service.MethodService;
+import tabby.util.Metrics;
 import tabby.util.SemanticHelper;
 
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * global tabby.core.data container
@@ -38,35 +41,72 @@ public class DataContainer {
     @Autowired
     private RulesContainer rulesContainer;
 
+    @Autowired
+    private HierarchyContainer hierarchyContainer;
+
+    @Autowired
+    private IncrementalCacheContainer incrementalCacheContainer;
+
+    @Autowired
+    private MethodSummaryContainer methodSummaryContainer;
+
     @Autowired
     private ClassService classService;
 
     @Autowired
     private MethodService methodService;
 
+    @Autowired
+    private BulkImportService bulkImportService;
+
     @Autowired
     private ClassRefService classRefService;
     @Autowired
     private MethodRefService methodRefService;
     @Autowired
     private RelationshipsService relationshipsService;
-
-    //    private Map<String, ClassReference> savedClassRefs = new HashMap<>();
-    private Map<String, ClassReference> savedClassRefs = Collections.synchronizedMap(new HashMap<>());
-    //    private Map<String, MethodReference> savedMethodRefs = new HashMap<>();
-    private Map<String, MethodReference> savedMethodRefs = Collections.synchronizedMap(new HashMap<>());
-
-    private Set<Has> savedHasNodes = Collections.synchronizedSet(new HashSet<>());
-    private Set<Call> savedCallNodes = Collections.synchronizedSet(new HashSet<>());
-    private Set<Alias> savedAliasNodes = Collections.synchronizedSet(new HashSet<>());
-    private Set<Extend> savedExtendNodes = Collections.synchronizedSet(new HashSet<>());
-    private Set<Interfaces> savedInterfacesNodes = Collections.synchronizedSet(new HashSet<>());
+    @Autowired
+    private CsvSinkService csvSinkService;
+
+    // tabby-collector 线程池中的线程会同时读写以下内容，使用ConcurrentHashMap避免所有线程竞争同一把锁
+    private Map<String, ClassReference> savedClassRefs = new ConcurrentHashMap<>();
+    private Map<String, MethodReference> savedMethodRefs = new ConcurrentHashMap<>();
+
+    private Set<Has> savedHasNodes = ConcurrentHashMap.newKeySet();
+    private Set<Call> savedCallNodes = ConcurrentHashMap.newKeySet();
+    private Set<Alias> savedAliasNodes = ConcurrentHashMap.newKeySet();
+    private Set<Extend> savedExtendNodes = ConcurrentHashMap.newKeySet();
+    private Set<Interfaces> savedInterfacesNodes = ConcurrentHashMap.newKeySet();
+    // 新建函数节点时使用，保证并行分析时同一个函数只新建一次
+    private final Object methodRefLock = new Object();
+    /**
+     * 函数id -> 编译后的actions，actions 发生变化后重新编译
+     */
+    private final Map<Long, ActionSummary> actionSummaries = new ConcurrentHashMap<>();
+    /**
+     * 函数id -> 重新分析前的actions，重新分析期间递归调用该函数时使用，见 pinActionSummary
+     */
+    private final Map<Long, ActionSummary> pinnedSummaries = new ConcurrentHashMap<>();
 
     /**
      * check size and save nodes
      * 保存节点到h2 database
+     * 开启 tabby.cache.isStreamingCSV 时直接写入csv文件
      */
     public void save(String type){
+        if(incrementalCacheContainer.isEnabled()){
+            incrementalCacheContainer.record(type, getSaved(type));
+        }
+
+        if(GlobalConfiguration.IS_STREAMING_CSV){
+            // phase.csvWrite 只在 save2CSV 中记录，这里记录分析过程中写入csv的耗时
+            Metrics.time("csv.stream", () -> stream(type));
+        }else{
+            Metrics.time("phase.h2Save", () -> saveToH2(type));
+        }
+    }
+
+    private void saveToH2(String type){
         switch (type){
             case "class":
                 if(!savedClassRefs.isEmpty()){
@@ -115,6 +155,55 @@ public class DataContainer {
         }
     }
 
+    private Collection<?> getSaved(String type){
+        switch (type){
+            case "class": return savedClassRefs.values();
+            case "method": return savedMethodRefs.values();
+            case "has": return savedHasNodes;
+            case "call": return savedCallNodes;
+            case "extend": return savedExtendNodes;
+            case "interfaces": return savedInterfacesNodes;
+            case "alias": return savedAliasNodes;
+            default: return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 直接写入csv文件，不再经过h2
+     * class、method节点在后续分析中仍需要被查找，所以保留在内存中，h2仅用于内存中查找不到的情况
+     * 边不会被查找，写入后直接清除
+     */
+    private void stream(String type){
+        switch (type){
+            case "class":
+                csvSinkService.saveClassRefs(savedClassRefs.values());
+                break;
+            case "method":
+                csvSinkService.saveMethodRefs(savedMethodRefs.values());
+                break;
+            case "has":
+                csvSinkService.saveEdges(type, savedHasNodes);
+                savedHasNodes.clear();
+                break;
+            case "call":
+                csvSinkService.saveEdges(type, savedCallNodes);
+                savedCallNodes.clear();
+                break;
+            case "extend":
+                csvSinkService.saveEdges(type, savedExtendNodes);
+                savedExtendNodes.clear();
+                break;
+            case "interfaces":
+                csvSinkService.saveEdges(type, savedInterfacesNodes);
+                savedInterfacesNodes.clear();
+                break;
+            case "alias":
+                csvSinkService.saveEdges(type, savedAliasNodes);
+                savedAliasNodes.clear();
+                break;
+        }
+    }
+
     /**
      * store nodes
      * 保存节点到内存
@@ -128,9 +217,11 @@ public class DataContainer {
 
         if(ref instanceof ClassReference){
             ClassReference classRef = (ClassReference) ref;
+            if(classRef.getName() == null) return;
             savedClassRefs.put(classRef.getName(), classRef);
         }else if(ref instanceof MethodReference){
             MethodReference methodRef = (MethodReference) ref;
+            if(methodRef.getSignature() == null) return;
             savedMethodRefs.put(methodRef.getSignature(), methodRef);
         }else if(ref instanceof Has){
             savedHasNodes.add((Has) ref);
@@ -152,7 +243,8 @@ public class DataContainer {
      * @return
      */
     public ClassReference getClassRefByName(String name){
-        ClassReference ref = savedClassRefs.getOrDefault(name, null);
+        if(name == null) return null;
+        ClassReference ref = savedClassRefs.get(name);
         if(ref != null) return ref;
         // find from h2
         ref = classRefService.getClassRefByName(name);
@@ -167,16 +259,16 @@ public class DataContainer {
      * @return
      */
     public MethodReference getMethodRefBySubSignature(String classname, String subSignature){
-        String signature = String.format("<%s: %s>", clean(classname), clean(subSignature));
-        MethodReference ref = savedMethodRefs.getOrDefault(signature, null);
+        // 直接拼接，不使用 String.format（需要解析格式串，是查找的主要开销）
+        String signature = "<" + clean(classname) + ": " + clean(subSignature) + ">";
+        MethodReference ref = savedMethodRefs.get(signature);
         if(ref != null) return ref;
         // find from h2
-        ref = methodRefService.getMethodRefBySignature(signature);
-        return ref;
+        return methodRefService.getMethodRefBySignature(signature);
     }
 
     private String clean(String data){
-        return data.replace("'", "");
+        return data.indexOf('\'') == -1 ? data : data.replace("'", "");
     }
 
     /**
@@ -187,7 +279,8 @@ public class DataContainer {
      * @return
      */
     public MethodReference getMethodRefBySignature(String signature){
-        MethodReference ref = savedMethodRefs.getOrDefault(signature, null);
+        if(signature == null) return null;
+        MethodReference ref = savedMethodRefs.get(signature);
         if(ref != null) return ref;
         // find from h2
         ref = methodRefService.getMethodRefBySignature(signature);
@@ -254,24 +347,37 @@ public class DataContainer {
         MethodReference methodRef = getMethodRefBySignature(sootMethodRef);
 
         if(methodRef == null){
-            // 解决ClassInfoScanner阶段，函数信息收集不完全的问题
-            SootClass cls = sootMethodRef.getDeclaringClass();
-            ClassReference classRef = getClassRefByName(cls.getName());
-            if(classRef == null){// 对于新建的情况，再查一遍
-                classRef = ClassInfoScanner.collect0(cls.getName(), cls, this, 0);
+            // 并行分析时，同一个函数只新建一次
+            synchronized (methodRefLock){
                 methodRef = getMethodRefBySignature(sootMethodRef);
+                if(methodRef == null){
+                    methodRef = addMethodRef(sootMethodRef, method);
+                }
             }
+        }
+        return methodRef;
+    }
 
-            if(methodRef == null){
-                methodRef = MethodReference.newInstance(classRef.getName(), method);
-                Has has = Has.newInstance(classRef, methodRef);
-                if(!classRef.getHasEdge().contains(has)){
-                    classRef.getHasEdge().add(has);
-                    store(has);
-                    ClassInfoScanner.makeAliasRelation(has, this);
-                }
-                store(methodRef);
+    private MethodReference addMethodRef(SootMethodRef sootMethodRef, SootMethod method){
+        MethodReference methodRef = null;
+        // 解决ClassInfoScanner阶段，函数信息收集不完全的问题
+        SootClass cls = sootMethodRef.getDeclaringClass();
+        ClassReference classRef = getClassRefByName(cls.getName());
+        if(classRef == null){// 对于新建的情况，再查一遍
+            classRef = ClassInfoScanner.collectIfAbsent(cls.getName(), cls, this, 0);
+            methodRef = getMethodRefBySignature(sootMethodRef);
+        }
+
+        if(methodRef == null){
+            methodRef = MethodReference.newInstance(classRef.getName(), method);
+            methodSummaryContainer.apply(methodRef);
+            Has has = Has.newInstance(classRef, methodRef);
+            if(!classRef.getHasEdge().contains(has)){
+                classRef.getHasEdge().add(has);
+                store(has);
+                ClassInfoScanner.makeAliasRelation(has, this);
             }
+            store(methodRef);
         }
         return methodRef;
     }
@@ -290,51 +396,40 @@ public class DataContainer {
     /**
      * 根据Java语法，遇到第一个父类函数存在对应subSignature的函数是真实函数
      * 所以默认以广度优先进行查找，但也可指定深度优先
+     * 父节点从继承关系索引中获取，不再每次遍历SootClass
      * @param cls
      * @param subSignature
      * @return
      */
     public MethodReference getFirstMethodRefFromFatherNodes(SootClass cls, String subSignature, boolean deepFirst){
-        // 父节点包括父类 和 接口
-        MethodReference target = null;
-        // 从父类找
-        if(cls.hasSuperclass()){
-            SootClass superCls = cls.getSuperclass();
-            target = getTargetMethodRef(superCls, subSignature, deepFirst);
+        hierarchyContainer.getDirectFatherNodes(cls); // 确保当前类已被索引
+        return getFirstMethodRefFromFatherNodes(cls.getName(), subSignature, deepFirst);
+    }
 
+    private MethodReference getFirstMethodRefFromFatherNodes(String classname, String subSignature, boolean deepFirst){
+        // 父节点包括父类 和 接口，父类在前
+        for(String father:hierarchyContainer.getDirectFatherNodes(classname)){
+            MethodReference target = getTargetMethodRef(father, subSignature, deepFirst);
             if(target != null){
                 return target;
             }
         }
-        // 从接口找
-        if(cls.getInterfaceCount() > 0){
-            for(SootClass intface:cls.getInterfaces()){
-                target = getTargetMethodRef(intface, subSignature, deepFirst);
-
-                if(target != null){
-                    return target;
-                }
-            }
-        }
         return null;
     }
 
     public Set<MethodReference> getAliasMethodRefs(SootClass cls, String subSignature){
-        Set<MethodReference> refs = new HashSet<>();
-        Set<SootClass> classes = new HashSet<>();
-
-        if(cls.hasSuperclass()){
-            classes.add(cls.getSuperclass());
-        }
+        hierarchyContainer.getDirectFatherNodes(cls); // 确保当前类已被索引
+        return getAliasMethodRefs(cls.getName(), subSignature);
+    }
 
-        if(cls.getInterfaceCount() > 0){
-            classes.addAll(cls.getInterfaces());
-        }
+    private Set<MethodReference> getAliasMethodRefs(String classname, String subSignature){
+        Set<MethodReference> refs = new HashSet<>();
+        Set<String> classes = new HashSet<>(hierarchyContainer.getDirectFatherNodes(classname));
 
         MethodReference ref = null;
 
-        for(SootClass clazz:classes){
-            ref = getMethodRefBySubSignature(clazz.getName(), subSignature);
+        for(String clazz:classes){
+            ref = getMethodRefBySubSignature(clazz, subSignature);
             if(ref != null){
                 refs.add(ref);
             }else{
@@ -344,63 +439,125 @@ public class DataContainer {
         return refs;
     }
 
-    private MethodReference getTargetMethodRef(SootClass cls, String subSignature, boolean deepFirst){
+    private MethodReference getTargetMethodRef(String classname, String subSignature, boolean deepFirst){
         MethodReference target = null;
         if(deepFirst){
-            target = getFirstMethodRefFromFatherNodes(cls, subSignature, deepFirst);
+            target = getFirstMethodRefFromFatherNodes(classname, subSignature, deepFirst);
             if(target == null){
-                target = getMethodRefBySubSignature(cls.getName(), subSignature);
+                target = getMethodRefBySubSignature(classname, subSignature);
             }
         }else{
-            target = getMethodRefBySubSignature(cls.getName(), subSignature);
+            target = getMethodRefBySubSignature(classname, subSignature);
             if(target == null){
-                target = getFirstMethodRefFromFatherNodes(cls, subSignature, deepFirst);
+                target = getFirstMethodRefFromFatherNodes(classname, subSignature, deepFirst);
             }
         }
 
         return target;
     }
 
+    /**
+     * 获取函数编译后的actions，同一函数的actions只在变化后重新编译
+     */
+    public ActionSummary getActionSummary(MethodReference methodRef){
+        ActionSummary pinned = pinnedSummaries.get(methodRef.getId());
+        if(pinned != null) return pinned;
+        int version = methodRef.getActionsVersion();
+        ActionSummary summary = actionSummaries.get(methodRef.getId());
+        if(summary == null || summary.getVersion() != version){
+            summary = ActionSummary.compile(methodRef.getActions(), version);
+            actionSummaries.put(methodRef.getId(), summary);
+        }
+        return summary;
+    }
+
+    /**
+     * 分析结束后调用，编译后的actions只在函数分析过程中使用
+     */
+    public void clearActionSummaries(){
+        actionSummaries.clear();
+        pinnedSummaries.clear();
+    }
+
+    /**
+     * 重新分析函数前调用，分析期间调用该函数时使用当前的actions，而不是正在重新生成的actions
+     */
+    public void pinActionSummary(MethodReference methodRef){
+        pinnedSummaries.put(methodRef.getId(), getActionSummary(methodRef));
+    }
+
+    public void unpinActionSummary(MethodReference methodRef){
+        pinnedSummaries.remove(methodRef.getId());
+    }
+
+    /**
+     * 删除函数已经收集的调用边，重新分析该函数前调用
+     * 调用边在整个调用图构建完成后才保存，此时仍在内存中
+     */
+    public void removeCallEdges(MethodReference methodRef){
+        Set<Call> edges = methodRef.getCallEdge();
+        savedCallNodes.removeAll(edges);
+        edges.clear();
+    }
+
     public void loadNecessaryMethodRefs(){
         List<MethodReference> refs = methodRefService.loadNecessaryMethodRefs();
-        refs.forEach(ref ->{
-            savedMethodRefs.put(ref.getSignature(), ref);
-        });
+        refs.forEach(this::store);
     }
 
     public void loadNecessaryClassRefs(){
         List<ClassReference> refs = classRefService.loadNecessaryClassRefs();
-        refs.forEach(ref ->{
-            savedClassRefs.put(ref.getName(), ref);
-        });
+        refs.forEach(this::store);
     }
 
+    /**
+     * 空库时直接CREATE节点和边，跳过MERGE的查重过程
+     * 离线全量导入可使用 tabby.output.isBulkImportFormat 生成的neo4j-admin导入文件
+     */
     public void save2Neo4j(){
+        long start = System.nanoTime();
+        boolean isEmpty = classService.isDatabaseEmpty();
+        if(isEmpty){
+            log.info("Neo4j is empty, create nodes and relationships directly.");
+        }
         log.info("Save methods to Neo4j.");
-        methodService.importMethodRef();
+        Metrics.time("neo4j.methods", () -> methodService.importMethodRef(isEmpty));
         log.info("Save classes to Neo4j.");
-        classService.importClassRef();
+        Metrics.time("neo4j.classes", () -> classService.importClassRef(isEmpty));
         log.info("Save relation to Neo4j.");
-        classService.buildEdge();
+        Metrics.time("neo4j.edges", () -> classService.buildEdge(isEmpty));
+        Metrics.timer("phase.neo4jLoad").record(System.nanoTime() - start);
     }
 
     public void save2CSV(){
         log.info("Save cache to CSV.");
-        classRefService.save2Csv();
-        methodRefService.save2Csv();
-        relationshipsService.save2CSV();
+        long start = System.nanoTime();
+        if(GlobalConfiguration.IS_STREAMING_CSV){
+            // 数据已经在分析过程中写入，这里只需要刷新并关闭文件
+            csvSinkService.close();
+        }else{
+            classRefService.save2Csv();
+            methodRefService.save2Csv();
+            relationshipsService.save2CSV();
+        }
+        if(GlobalConfiguration.IS_BULK_IMPORT_FORMAT){
+            Metrics.time("csv.bulkExport", bulkImportService::export);
+        }
+        Metrics.timer("phase.csvWrite").record(System.nanoTime() - start);
         log.info("Save cache to CSV. DONE!");
     }
 
-    @Async("tabby-collector")
-    public Future<Boolean> cleanAll(){
+    public void cleanAll(){
         log.info("Clean old tabby.core.data in Neo4j.");
         classService.clear();
         log.info("Clean old tabby.core.data in Neo4j. DONE!");
-        return new AsyncResult<>(true);
     }
 
     public void count(){
+        if(GlobalConfiguration.IS_STREAMING_CSV){
+            csvSinkService.count();
+            return;
+        }
         int nodes = classRefService.countAll() + methodRefService.countAll();
         log.info("Total {}, classes: {}, methods: {}", nodes, classRefService.countAll(), methodRefService.countAll());
         relationshipsService.count();
@@ -0,0 +1,102 @@
+package tabby.core.container;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import soot.SootClass;
+import tabby.util.SemanticHelper;
+import tabby.util.Symbols;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类继承关系索引
+ * 每个类的直接父节点和全部父节点只从soot中计算一次，后续直接查表
+ * 父节点包括父类和接口，类名统一通过 Symbols 去重，避免重复的字符串
+ * @author wh1t3p1g
+ * @since 2023/2/8
+ */
+@Slf4j
+@Component
+public class HierarchyContainer {
+
+    private static final String OBJECT = "java.lang.Object";
+
+    /**
+     * 直接父节点，父类在前，接口按声明顺序在后
+     * 包含java.lang.Object
+     */
+    private final Map<String, List<String>> directFatherNodes = new ConcurrentHashMap<>();
+    /**
+     * 全部父节点，不包含java.lang.Object
+     */
+    private final Map<String, Set<String>> allFatherNodes = new ConcurrentHashMap<>();
+
+    public List<String> getDirectFatherNodes(SootClass cls){
+        List<String> nodes = directFatherNodes.get(cls.getName());
+        if(nodes != null) return nodes;
+
+        List<String> temp = new ArrayList<>();
+        if(cls.hasSuperclass()){
+            temp.add(Symbols.intern(cls.getSuperclass().getName()));
+        }
+        if(cls.getInterfaceCount() > 0){
+            for(SootClass intface:cls.getInterfaces()){
+                temp.add(Symbols.intern(intface.getName()));
+            }
+        }
+        nodes = Collections.unmodifiableList(temp);
+        List<String> old = directFatherNodes.putIfAbsent(Symbols.intern(cls.getName()), nodes);
+        return old == null ? nodes : old;
+    }
+
+    /**
+     * 通过类名获取直接父节点
+     * 未缓存时从soot中加载对应的类
+     * @param classname 类名
+     * @return 直接父节点，找不到类时返回空
+     */
+    public List<String> getDirectFatherNodes(String classname){
+        List<String> nodes = directFatherNodes.get(classname);
+        if(nodes != null) return nodes;
+
+        SootClass cls = SemanticHelper.getSootClass(classname);
+        if(cls == null) return Collections.emptyList();
+        return getDirectFatherNodes(cls);
+    }
+
+    public Set<String> getAllFatherNodes(SootClass cls){
+        Set<String> nodes = allFatherNodes.get(cls.getName());
+        if(nodes != null) return nodes;
+
+        Set<String> temp = new HashSet<>();
+        if(cls.hasSuperclass() && !OBJECT.equals(cls.getSuperclass().getName())){
+            SootClass superCls = cls.getSuperclass();
+            temp.add(Symbols.intern(superCls.getName()));
+            temp.addAll(getAllFatherNodes(superCls));
+        }
+        if(cls.getInterfaceCount() > 0){
+            for(SootClass intface:cls.getInterfaces()){
+                temp.add(Symbols.intern(intface.getName()));
+                temp.addAll(getAllFatherNodes(intface));
+            }
+        }
+        nodes = Collections.unmodifiableSet(temp);
+        Set<String> old = allFatherNodes.putIfAbsent(Symbols.intern(cls.getName()), nodes);
+        return old == null ? nodes : old;
+    }
+
+    public Set<String> getAllFatherNodes(String classname){
+        Set<String> nodes = allFatherNodes.get(classname);
+        if(nodes != null) return nodes;
+
+        SootClass cls = SemanticHelper.getSootClass(classname);
+        if(cls == null) return Collections.emptySet();
+        return getAllFatherNodes(cls);
+    }
+
+    public void clear(){
+        directFatherNodes.clear();
+        allFatherNodes.clear();
+    }
+}
@@ -0,0 +1,531 @@
+package tabby.core.container;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import tabby.config.GlobalConfiguration;
+import tabby.dal.caching.bean.edge.*;
+import tabby.dal.caching.bean.ref.ClassReference;
+import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.util.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 按jar包md5保存的分析结果缓存
+ * 未发生变化的jar包直接从缓存中加载节点和边，不再经过soot分析；只有新增或变化的jar包会经过ClassInfoScanner和CallGraphScanner
+ * 缓存目录按当前的分析模式、规则文件以及目标以外的classpath（jdk、依赖库）区分，其中任意一项变化后会使用新的缓存目录
+ * 每个jar包对应一个文件，每行一条记录：自身的class、method节点，以及从自身出发的边
+ * 边所指向的、不属于任何分析目标的节点（比如classpath中的依赖）作为stub一同保存，加载时仅在不存在时补充
+ * 函数的actions、调用边依赖于被调用jar包的分析结果，每个jar包额外记录边所指向的其他分析目标的md5（.depends 文件）
+ * 依赖的jar包发生变化或需要重新分析时，当前jar包的缓存同样失效
+ * @author wh1t3p1g
+ * @since 2023/2/13
+ */
+@Slf4j
+@Component
+public class IncrementalCacheContainer {
+
+    private static final String SUFFIX = ".cache";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String DEPENDS_SUFFIX = ".depends";
+    // 缓存格式变化时递增，旧的缓存不再使用
+    private static final int VERSION = 2;
+    private static final Gson GSON = new Gson();
+
+    private Path directory;
+    /**
+     * 目标以外的classpath的md5，目录类型没有md5，使用路径
+     */
+    private final Set<String> classpaths = new TreeSet<>();
+    /**
+     * 本次需要分析的目标 path -> md5
+     */
+    private final Map<String, String> analysing = new ConcurrentHashMap<>();
+    /**
+     * 本次分析的类所属的jar包 classname -> md5
+     */
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+    /**
+     * 从缓存中加载的类所属的jar包 classname -> md5，用于记录依赖
+     */
+    private final Map<String, String> cachedOwners = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    /**
+     * 从缓存中加载的函数id，不需要再构建调用边
+     */
+    private final Set<Long> loadedMethods = ConcurrentHashMap.newKeySet();
+
+    public boolean isEnabled(){
+        return GlobalConfiguration.IS_INCREMENTAL_BUILD;
+    }
+
+    /**
+     * 父类、被调用函数的解析依赖于目标以外的classpath，在加载缓存前设置
+     * @param classpaths 所有的classpath md5 -> path
+     * @param targets 需要分析的目标 md5 -> path
+     */
+    public synchronized void setClasspaths(Map<String, String> classpaths, Map<String, String> targets){
+        this.classpaths.clear();
+        classpaths.forEach((md5, path) -> {
+            if(!targets.containsKey(md5)){
+                this.classpaths.add(md5);
+            }
+        });
+        directory = null;
+    }
+
+    /**
+     * 已有缓存的目标直接加载到dataContainer中
+     * @param targets md5 -> path
+     * @param dataContainer 数据容器
+     * @return 剩余需要分析的目标 md5 -> path
+     */
+    public Map<String, String> load(Map<String, String> targets, DataContainer dataContainer){
+        Map<String, String> remained = new HashMap<>();
+        Map<String, Set<String>> cached = new HashMap<>(); // md5 -> 依赖的md5
+        Path dir = getDirectory();
+        targets.forEach((md5, path) -> {
+            if(md5.equals(path)){ // 目录类型的目标没有md5，不缓存
+                remained.put(md5, path);
+                return;
+            }
+            Set<String> depends = readDepends(dir, md5);
+            if(depends != null){
+                cached.put(md5, depends);
+            }
+        });
+        int invalidated = invalidate(cached);
+
+        Set<String> loaded = new HashSet<>();
+        if(!cached.isEmpty()){
+            Loader loader = new Loader();
+            for(String md5:cached.keySet()){
+                Path file = dir.resolve(md5 + SUFFIX);
+                try{
+                    loader.read(file, md5);
+                    loaded.add(md5);
+                }catch (Exception e){
+                    // 缓存损坏时，重新分析该目标
+                    log.error("Load cache {} error: {}", file.getFileName(), e.getMessage());
+                }
+            }
+            loader.apply(dataContainer);
+        }
+        targets.forEach((md5, path) -> {
+            if(!md5.equals(path) && !loaded.contains(md5)){
+                remained.put(md5, path);
+                analysing.put(path, md5);
+            }
+        });
+        log.info("Load {} targets from cache, {} targets need to analyse, {} invalidated by changed dependencies.",
+                loaded.size(), remained.size(), invalidated);
+        return remained;
+    }
+
+    /**
+     * 缓存文件及依赖记录都存在时才使用缓存
+     * @return 依赖的md5，没有缓存时返回null
+     */
+    private Set<String> readDepends(Path dir, String md5){
+        Path depends = dir.resolve(md5 + DEPENDS_SUFFIX);
+        if(!Files.exists(dir.resolve(md5 + SUFFIX)) || !Files.exists(depends)) return null;
+        try{
+            Set<String> ret = new HashSet<>();
+            for(String line:Files.readAllLines(depends, StandardCharsets.UTF_8)){
+                if(!line.isEmpty()) ret.add(line);
+            }
+            return ret;
+        }catch (IOException e){
+            log.error("Load cache {} error: {}", depends.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 依赖的jar包不在可用的缓存中（已变化、被移除或需要重新分析）时，缓存失效
+     * 失效会沿依赖关系传递，直到不再变化
+     * @return 失效的缓存数量
+     */
+    private int invalidate(Map<String, Set<String>> cached){
+        int count = 0;
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            Iterator<Map.Entry<String, Set<String>>> iterator = cached.entrySet().iterator();
+            while(iterator.hasNext()){
+                if(!cached.keySet().containsAll(iterator.next().getValue())){
+                    iterator.remove();
+                    changed = true;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 记录待分析目标下的所有类，用于判断节点和边归属的jar包
+     */
+    public void bind(String path, List<String> classes){
+        if(!isEnabled() || classes == null) return;
+        String md5 = analysing.get(path);
+        if(md5 == null) return;
+        for(String classname:classes){
+            owners.put(classname, md5);
+        }
+    }
+
+    public boolean isLoaded(MethodReference ref){
+        return loadedMethods.contains(ref.getId());
+    }
+
+    /**
+     * 记录DataContainer中即将保存的节点和边
+     */
+    public synchronized void record(String type, Collection<?> items){
+        if(!isEnabled() || analysing.isEmpty()) return;
+        try{
+            for(Object item:items){
+                record(type, item);
+            }
+        }catch (IOException e){
+            log.error("Save cache error: {}", e.getMessage());
+        }
+    }
+
+    private void record(String type, Object item) throws IOException {
+        if(item instanceof ClassReference){
+            ClassReference ref = (ClassReference) item;
+            Bucket bucket = getBucket(ref.getName());
+            if(bucket != null) bucket.writeNode(type, ref.getId(), ref, true);
+        }else if(item instanceof MethodReference){
+            MethodReference ref = (MethodReference) item;
+            Bucket bucket = getBucket(ref.getClassname());
+            if(bucket != null) bucket.writeNode(type, ref.getId(), ref, true);
+        }else if(item instanceof Has){
+            Has has = (Has) item;
+            Bucket bucket = getBucket(has.getClassRef().getName());
+            if(bucket == null) return;
+            writeStub(bucket, has.getMethodRef());
+            bucket.writeEdge(type, new EdgeRecord(has.getClassRef().getName(), String.valueOf(has.getMethodRef().getId())));
+        }else if(item instanceof Call){
+            Call call = (Call) item;
+            Bucket bucket = getBucket(call.getSource().getClassname());
+            if(bucket == null) return;
+            depend(bucket, call.getTarget().getClassname());
+            writeStub(bucket, call.getTarget());
+            EdgeRecord record = new EdgeRecord(String.valueOf(call.getSource().getId()), String.valueOf(call.getTarget().getId()));
+            record.lineNum = call.getLineNum();
+            record.invokerType = call.getInvokerType();
+            record.realCallType = call.getRealCallType();
+            record.pollutedPosition = call.getPollutedPosition();
+            bucket.writeEdge(type, record);
+        }else if(item instanceof Alias){
+            Alias alias = (Alias) item;
+            // 别名边在分析子类时创建，归属于子类函数
+            Bucket bucket = getBucket(alias.getTarget().getClassname());
+            if(bucket == null) return;
+            depend(bucket, alias.getSource().getClassname());
+            writeStub(bucket, alias.getSource());
+            bucket.writeEdge(type, new EdgeRecord(String.valueOf(alias.getSource().getId()), String.valueOf(alias.getTarget().getId())));
+        }else if(item instanceof Extend){
+            Extend extend = (Extend) item;
+            Bucket bucket = getBucket(extend.getSource().getName());
+            if(bucket == null) return;
+            depend(bucket, extend.getTarget().getName());
+            writeStub(bucket, extend.getTarget());
+            bucket.writeEdge(type, new EdgeRecord(extend.getSource().getName(), extend.getTarget().getName()));
+        }else if(item instanceof Interfaces){
+            Interfaces interfaces = (Interfaces) item;
+            Bucket bucket = getBucket(interfaces.getSource().getName());
+            if(bucket == null) return;
+            depend(bucket, interfaces.getTarget().getName());
+            writeStub(bucket, interfaces.getTarget());
+            bucket.writeEdge(type, new EdgeRecord(interfaces.getSource().getName(), interfaces.getTarget().getName()));
+        }
+    }
+
+    /**
+     * 边指向其他分析目标中的类时，记录该目标的md5
+     * classpath中的依赖、目录类型的目标没有md5，不记录
+     */
+    private void depend(Bucket bucket, String classname){
+        if(classname == null) return;
+        String md5 = owners.get(classname);
+        if(md5 == null){
+            md5 = cachedOwners.get(classname);
+        }
+        if(md5 != null && !md5.equals(bucket.md5)){
+            bucket.depends.add(md5);
+        }
+    }
+
+    private void writeStub(Bucket bucket, ClassReference ref) throws IOException {
+        if(ref != null && ref.getName() != null && !owners.containsKey(ref.getName())){
+            bucket.writeNode("class", ref.getId(), ref, false);
+        }
+    }
+
+    private void writeStub(Bucket bucket, MethodReference ref) throws IOException {
+        if(ref != null && ref.getSignature() != null
+                && (ref.getClassname() == null || !owners.containsKey(ref.getClassname()))){
+            bucket.writeNode("method", ref.getId(), ref, false);
+        }
+    }
+
+    private Bucket getBucket(String classname){
+        if(classname == null) return null;
+        String md5 = owners.get(classname);
+        if(md5 == null) return null;
+        return buckets.computeIfAbsent(md5, key -> new Bucket(key, getDirectory().resolve(key + SUFFIX + TEMP_SUFFIX)));
+    }
+
+    /**
+     * 分析完成后生成缓存文件，未完成的分析不会留下缓存
+     */
+    public synchronized void commit(){
+        if(!isEnabled() || analysing.isEmpty()) return;
+        Path dir = getDirectory();
+        for(String md5:analysing.values()){
+            Path target = dir.resolve(md5 + SUFFIX);
+            try{
+                Bucket bucket = buckets.get(md5);
+                // 先写入依赖记录，缓存文件存在时依赖记录一定完整
+                Files.write(dir.resolve(md5 + DEPENDS_SUFFIX),
+                        bucket == null ? Collections.emptySet() : bucket.depends, StandardCharsets.UTF_8);
+                if(bucket == null){ // 没有任何内容的目标，也需要记录
+                    Files.write(target, new byte[0]);
+                }else{
+                    bucket.close();
+                    Files.move(bucket.path, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }catch (IOException e){
+                log.error("Commit cache {} error: {}", md5, e.getMessage());
+            }
+        }
+        log.info("Save {} targets to cache {}", analysing.size(), dir);
+        buckets.clear();
+        analysing.clear();
+        owners.clear();
+        cachedOwners.clear();
+    }
+
+    /**
+     * 当前分析模式和规则对应的缓存目录
+     */
+    public synchronized Path getDirectory(){
+        if(directory == null){
+            directory = Paths.get(GlobalConfiguration.INCREMENTAL_CACHE_DIRECTORY, makeFingerprint());
+            try{
+                Files.createDirectories(directory);
+            }catch (IOException e){
+                throw new IllegalStateException("Can't create cache directory " + directory, e);
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * 分析结果依赖于分析模式、规则以及目标以外的classpath，ignores.json每次分析都会变化，不参与计算
+     */
+    @SuppressWarnings({"deprecation"})
+    private String makeFingerprint(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(VERSION).append(GlobalConfiguration.MODE).append(GlobalConfiguration.IS_FULL_CALL_GRAPH_CONSTRUCT)
+                .append(GlobalConfiguration.IS_EXCLUDE_JDK).append(GlobalConfiguration.IS_WITH_ALL_JDK);
+        classpaths.forEach(sb::append);
+        try(Stream<Path> files = Files.list(Paths.get(GlobalConfiguration.RULES_PATH))){
+            files.filter(Files::isRegularFile)
+                    .filter(file -> !file.toString().equals(GlobalConfiguration.IGNORE_PATH))
+                    .sorted()
+                    .forEach(file -> sb.append(FileUtils.getFileMD5(file.toFile())));
+        }catch (IOException e){
+            log.error("Read rules error: {}", e.getMessage());
+        }
+        return Hashing.md5().hashString(sb.toString(), StandardCharsets.UTF_8).toString();
+    }
+
+    private static class Entry {
+        private String type;
+        private boolean owned;
+        private JsonElement data;
+    }
+
+    /**
+     * 边的id只在单次分析中使用，不保存，加载时重新分配
+     * source、target 为 class name 或 method id
+     */
+    private static class EdgeRecord {
+        private String source;
+        private String target;
+        private int lineNum;
+        private String invokerType;
+        private String realCallType;
+        private int[] pollutedPosition;
+
+        private EdgeRecord(String source, String target){
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private static class Bucket {
+        private final String md5;
+        private final Path path;
+        private final Set<String> nodes = new HashSet<>();
+        private final Set<String> depends = new TreeSet<>();
+        private Writer writer;
+
+        private Bucket(String md5, Path path){
+            this.md5 = md5;
+            this.path = path;
+        }
+
+        private void writeNode(String type, long id, Object node, boolean owned) throws IOException {
+            if(!nodes.add(type + id)) return;
+            write(type, owned, GSON.toJsonTree(node));
+        }
+
+        private void writeEdge(String type, EdgeRecord record) throws IOException {
+            write(type, true, GSON.toJsonTree(record));
+        }
+
+        private void write(String type, boolean owned, JsonElement data) throws IOException {
+            if(writer == null){
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+            Entry entry = new Entry();
+            entry.type = type;
+            entry.owned = owned;
+            entry.data = data;
+            writer.write(GSON.toJson(entry));
+            writer.write('\n');
+        }
+
+        private void close() throws IOException {
+            if(writer != null) writer.close();
+        }
+    }
+
+    /**
+     * 先加载所有缓存文件中的节点，再加载边
+     * 属于jar包自身的节点优先，stub节点仅在不存在时补充
+     */
+    private class Loader {
+        private final Map<String, ClassReference> classes = new HashMap<>();
+        private final Map<Long, MethodReference> methods = new HashMap<>();
+        private final Map<String, ClassReference> stubClasses = new HashMap<>();
+        private final Map<Long, MethodReference> stubMethods = new HashMap<>();
+        private final List<Entry> edges = new ArrayList<>();
+
+        private void read(Path file, String md5) throws IOException {
+            Map<String, ClassReference> fileClasses = new HashMap<>();
+            Map<Long, MethodReference> fileMethods = new HashMap<>();
+            Map<String, ClassReference> fileStubClasses = new HashMap<>();
+            Map<Long, MethodReference> fileStubMethods = new HashMap<>();
+            List<Entry> fileEdges = new ArrayList<>();
+            try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+                String line;
+                while((line = reader.readLine()) != null){
+                    if(line.isEmpty()) continue;
+                    Entry entry = GSON.fromJson(line, Entry.class);
+                    if("class".equals(entry.type)){
+                        ClassReference ref = GSON.fromJson(entry.data, ClassReference.class);
+                        ref.internSymbols();
+                        (entry.owned ? fileClasses : fileStubClasses).put(ref.getName(), ref);
+                    }else if("method".equals(entry.type)){
+                        MethodReference ref = GSON.fromJson(entry.data, MethodReference.class);
+                        ref.internSymbols();
+                        if(ref.getActions() != null){
+                            ref.setActions(new ConcurrentHashMap<>(ref.getActions()));
+                        }
+                        (entry.owned ? fileMethods : fileStubMethods).put(ref.getId(), ref);
+                    }else{
+                        fileEdges.add(entry);
+                    }
+                }
+            }
+            // 整个文件读取成功后再合并
+            fileClasses.keySet().forEach(name -> cachedOwners.put(name, md5));
+            classes.putAll(fileClasses);
+            methods.putAll(fileMethods);
+            stubClasses.putAll(fileStubClasses);
+            stubMethods.putAll(fileStubMethods);
+            edges.addAll(fileEdges);
+        }
+
+        private void apply(DataContainer dataContainer){
+            loadedMethods.addAll(methods.keySet());
+            stubClasses.forEach(classes::putIfAbsent);
+            stubMethods.forEach(methods::putIfAbsent);
+
+            classes.values().forEach(dataContainer::store);
+            methods.values().forEach(dataContainer::store);
+
+            for(Entry entry:edges){
+                EdgeRecord record = GSON.fromJson(entry.data, EdgeRecord.class);
+                switch (entry.type){
+                    case "has":
+                        ClassReference classRef = getClassRef(record.source);
+                        Has has = Has.newInstance(classRef, getMethodRef(record.target));
+                        classRef.getHasEdge().add(has);
+                        dataContainer.store(has);
+                        break;
+                    case "call":
+                        Call call = Call.newInstance(getMethodRef(record.source), getMethodRef(record.target));
+                        call.setLineNum(record.lineNum);
+                        call.setInvokerType(record.invokerType);
+                        call.setRealCallType(record.realCallType);
+                        if(record.pollutedPosition != null){
+                            call.setPollutedPosition(record.pollutedPosition);
+                        }
+                        dataContainer.store(call);
+                        break;
+                    case "alias":
+                        Alias alias = Alias.newInstance(getMethodRef(record.source), getMethodRef(record.target));
+                        dataContainer.store(alias);
+                        break;
+                    case "extend":
+                        Extend extend = Extend.newInstance(getClassRef(record.source), getClassRef(record.target));
+                        dataContainer.store(extend);
+                        break;
+                    case "interfaces":
+                        Interfaces interfaces = Interfaces.newInstance(getClassRef(record.source), getClassRef(record.target));
+                        dataContainer.store(interfaces);
+                        break;
+                }
+            }
+        }
+
+        private ClassReference getClassRef(String name){
+            ClassReference ref = classes.get(name);
+            if(ref == null){
+                ref = ClassReference.newInstance(name);
+                classes.put(name, ref);
+            }
+            return ref;
+        }
+
+        /**
+         * 找不到时只保留id，写入csv时只使用id
+         */
+        private MethodReference getMethodRef(String source){
+            long id = Long.parseLong(source);
+            MethodReference ref = methods.get(id);
+            if(ref == null){
+                ref = new MethodReference();
+                ref.setId(id);
+                methods.put(id, ref);
+            }
+            return ref;
+        }
+    }
+}
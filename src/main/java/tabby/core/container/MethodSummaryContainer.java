@@ -0,0 +1,184 @@
+package tabby.core.container;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tabby.config.GlobalConfiguration;
+import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.util.VirtualClasspath;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 函数摘要（actions、pollutedPosition）缓存
+ * 摘要按 jar包md5 -> 函数签名 保存，jar包未变化时，其中的类文件也不会变化
+ * 仅缓存jdk和依赖库（包括commonJars.json中的jar包）中的函数，预加载后这些函数直接视为已分析，跳过doMethodAnalysis
+ * 当jdk或依赖库本身也是分析目标时，只预加载摘要，仍然需要分析其调用边
+ * @author wh1t3p1g
+ * @since 2023/2/14
+ */
+@Slf4j
+@Component
+public class MethodSummaryContainer {
+
+    private static final String FILENAME = "method-summaries.json";
+    private static final Gson GSON = new Gson();
+    private static final Type TYPE = new TypeToken<Map<String, Map<String, Summary>>>(){}.getType();
+
+    @Autowired
+    private IncrementalCacheContainer incrementalCacheContainer;
+
+    /**
+     * 依赖库中的类 classname -> md5
+     */
+    private final Map<String, String> owners = new HashMap<>();
+    /**
+     * 同时也是分析目标的依赖库
+     */
+    private final Set<String> analysing = new HashSet<>();
+    private final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+    private Map<String, Map<String, Summary>> stored = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong(0);
+
+    public boolean isEnabled(){
+        return GlobalConfiguration.IS_METHOD_SUMMARY_CACHE;
+    }
+
+    /**
+     * 加载当前依赖库对应的函数摘要
+     * @param libraries 依赖库 md5 -> path
+     * @param targets 分析目标 md5 -> path
+     */
+    public synchronized void load(Map<String, String> libraries, Map<String, String> targets){
+        if(!isEnabled()) return;
+        libraries.forEach((md5, path) -> {
+            if(md5.equals(path)) return; // 目录没有md5
+            if(targets.containsKey(md5)){
+                analysing.add(md5);
+            }
+            for(String classname:getClasses(path)){
+                owners.putIfAbsent(classname, md5);
+            }
+        });
+
+        Path file = incrementalCacheContainer.getDirectory().resolve(FILENAME);
+        if(Files.exists(file)){
+            try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+                Map<String, Map<String, Summary>> data = GSON.fromJson(reader, TYPE);
+                if(data != null) stored = data;
+            }catch (Exception e){
+                log.error("Load method summaries error: {}", e.getMessage());
+            }
+        }
+
+        stored.forEach((md5, methods) -> methods.forEach((signature, summary) -> {
+            // 同名的类可能存在于多个jar包中，只使用当前实际加载的jar包对应的摘要
+            if(md5.equals(owners.get(getClassname(signature)))){
+                summaries.put(signature, summary);
+            }
+        }));
+        log.info("Load {} method summaries.", summaries.size());
+    }
+
+    /**
+     * 新建的函数节点如果存在摘要，直接使用摘要
+     * 规则中已经指定actions的函数不会被覆盖
+     */
+    public void apply(MethodReference ref){
+        if(ref.isActionInitialed() || ref.getSignature() == null || summaries.isEmpty()) return;
+        Summary summary = summaries.get(ref.getSignature());
+        if(summary == null) return;
+
+        ref.setActions(summary.actions == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>(summary.actions));
+        ref.setPollutedPosition(summary.pollutedPosition == null ? new int[0] : summary.pollutedPosition.clone());
+        ref.setActionInitialed(true);
+        if(!analysing.contains(owners.get(ref.getClassname()))){
+            ref.setInitialed(true);
+        }
+        hits.incrementAndGet();
+    }
+
+    /**
+     * 保存本次分析得到的依赖库函数摘要
+     */
+    public synchronized void save(Collection<MethodReference> refs){
+        if(!isEnabled() || owners.isEmpty()) return;
+        int counter = 0;
+        for(MethodReference ref:refs){
+            if(!ref.isActionInitialed() || ref.isBodyParseError()
+                    || ref.getBudgetExceededReason() != null || ref.getSignature() == null) continue;
+            String md5 = owners.get(ref.getClassname());
+            if(md5 == null) continue;
+
+            Summary summary = new Summary();
+            summary.actions = ref.getActions() == null ? new HashMap<>() : new HashMap<>(ref.getActions());
+            summary.pollutedPosition = ref.getPollutedPosition() == null ? new int[0] : ref.getPollutedPosition().clone();
+            stored.computeIfAbsent(md5, k -> new HashMap<>()).put(ref.getSignature(), summary);
+            counter++;
+        }
+
+        Path file = incrementalCacheContainer.getDirectory().resolve(FILENAME);
+        Path temp = file.resolveSibling(FILENAME + ".tmp");
+        try(Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)){
+            GSON.toJson(stored, TYPE, writer);
+        }catch (IOException e){
+            log.error("Save method summaries error: {}", e.getMessage());
+            return;
+        }
+        try{
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }catch (IOException e){
+            log.error("Save method summaries error: {}", e.getMessage());
+            return;
+        }
+        log.info("Method summaries hit: {}, saved: {}", hits.get(), counter);
+    }
+
+    /**
+     * 列出jar包或jmod中的所有类
+     */
+    private static List<String> getClasses(String path){
+        if(VirtualClasspath.isVirtual(path)){
+            return VirtualClasspath.getClassesUnder(path);
+        }
+        List<String> classes = new ArrayList<>();
+        try(ZipFile zipFile = new ZipFile(path)){
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while(entries.hasMoreElements()){
+                String name = entries.nextElement().getName();
+                if(!name.endsWith(".class")) continue;
+                if(name.startsWith("classes/")){ // jmod
+                    name = name.substring("classes/".length());
+                }
+                classes.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            }
+        }catch (IOException e){
+            log.debug("Read {} error: {}", path, e.getMessage());
+        }
+        return classes;
+    }
+
+    private static String getClassname(String signature){
+        int index = signature.indexOf(':');
+        return index > 1 ? signature.substring(1, index) : signature;
+    }
+
+    private static class Summary {
+        private Map<String, String> actions = new HashMap<>();
+        private int[] pollutedPosition = new int[0];
+    }
+}
@@ -20,6 +20,7 @@ import java.util.*;
 public class RulesContainer {
 
     private Map<String, TabbyRule> rules = new HashMap<>();
+    private Map<String, Map<String, TabbyRule.Rule>> ignoreRules = new HashMap<>(); // classname -> function -> ignore规则
     private List<String> ignored; // 已经分析过的jar包
     private List<String> excludedClasses; // 不进行分析的类
     private List<String> basicClasses; // 已经分析过的jar包
@@ -33,13 +34,27 @@ public class RulesContainer {
     }
 
     public TabbyRule.Rule getRule(String classname, String method){
-        if(rules.containsKey(classname)){
-            TabbyRule rule = rules.get(classname);
-            if(rule.contains(method)){
-                return rule.getRule(method);
+        TabbyRule rule = rules.get(classname);
+        return rule == null ? null : rule.getRule(method);
+    }
+
+    /**
+     * 对于ignore类型，支持多级父类和接口的规则查找
+     * 每个类只需计算一次，同名函数以先遍历到的父类规则为准
+     * @param relatedClassnames 所有父类和接口
+     * @return function -> ignore规则
+     */
+    public Map<String, TabbyRule.Rule> getInheritedIgnoreRules(Set<String> relatedClassnames){
+        Map<String, TabbyRule.Rule> inherited = null;
+        for(String relatedClassname:relatedClassnames){
+            Map<String, TabbyRule.Rule> ignores = ignoreRules.get(relatedClassname);
+            if(ignores == null) continue;
+            if(inherited == null){
+                inherited = new HashMap<>();
             }
+            ignores.forEach(inherited::putIfAbsent);
         }
-        return null;
+        return inherited == null ? Collections.emptyMap() : inherited;
     }
 
     public TabbyRule getRule(String classname){
@@ -82,6 +97,13 @@ public class RulesContainer {
                 rules.put(rule.getName(), rule);
             }
         }
+        for(TabbyRule rule:rules.values()){
+            rule.getRuleMap().forEach((function, r) -> {
+                if(r.isIgnore()){
+                    ignoreRules.computeIfAbsent(rule.getName(), k -> new HashMap<>()).put(function, r);
+                }
+            });
+        }
         log.info("load "+ rules.size() +" rules success!");
     }
     @SuppressWarnings({"unchecked"})
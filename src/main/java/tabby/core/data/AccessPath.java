@@ -0,0 +1,233 @@
+package tabby.core.data;
+
+import tabby.util.PositionHelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 污点的来源路径，替代原有的 param-0|<field sig>|3 字符串
+ * 根节点为 this、param-n 等位置，后续节点为类属性签名或数组下标
+ * 相同的路径只存在一个实例，可以直接用 == 比较，根节点的位置在创建时计算
+ * hashCode 与对应字符串的 hashCode 一致，集合的遍历顺序与使用字符串时相同
+ * 仅在生成 actions 时转为字符串
+ * @author wh1t3p1g
+ * @since 2023/2/19
+ */
+public final class AccessPath {
+
+    public static final String SEPARATOR = "|";
+    public static final String REMAIN = "&remain";
+
+    private static final Map<String, AccessPath> ROOTS = new ConcurrentHashMap<>();
+    private static volatile Map<String, AccessPath> PARSED = new ConcurrentHashMap<>();
+    private static final AccessPath[] PARAMS = new AccessPath[16];
+
+    public static final AccessPath THIS = root("this");
+    public static final AccessPath SOURCE = root("source");
+    /**
+     * 污点状态存在但没有对应的来源时使用，对应原来的 "null"
+     */
+    public static final AccessPath UNKNOWN = root("null");
+
+    static {
+        for(int i = 0; i < PARAMS.length; i++){
+            PARAMS[i] = root("param-" + i);
+        }
+    }
+
+    private final AccessPath parent;
+    private final String segment;
+    private final int position;
+    private final boolean related;
+    private final int index;
+    private final int hash;
+    private volatile String string;
+    private volatile Map<String, AccessPath> children;
+
+    private AccessPath(AccessPath parent, String segment){
+        this.parent = parent;
+        this.segment = segment;
+        if(parent == null){
+            position = PositionHelper.getPosition(segment);
+            related = segment.startsWith("this") || segment.startsWith("param-");
+            hash = segment.hashCode();
+        }else{
+            position = parent.position;
+            related = parent.related;
+            int h = parent.hash * 31 + '|';
+            for(int i = 0; i < segment.length(); i++){
+                h = h * 31 + segment.charAt(i);
+            }
+            hash = h;
+        }
+        index = parent != null && isNumeric(segment) ? parseIndex(segment) : -1;
+    }
+
+    public static AccessPath root(String name){
+        return ROOTS.computeIfAbsent(name, k -> new AccessPath(null, k));
+    }
+
+    public static AccessPath param(int index){
+        if(index >= 0 && index < PARAMS.length && PARAMS[index] != null){
+            return PARAMS[index];
+        }
+        return root("param-" + index);
+    }
+
+    /**
+     * 解析 actions 中的字符串，每个段落中的 &remain 会被剔除
+     */
+    public static AccessPath parse(String path){
+        if(path == null) return null;
+        return PARSED.computeIfAbsent(path, AccessPath::doParse);
+    }
+
+    private static AccessPath doParse(String path){
+        AccessPath ret = null;
+        int start = 0;
+        while(true){
+            int end = path.indexOf('|', start);
+            String segment = end == -1 ? path.substring(start) : path.substring(start, end);
+            int remain = segment.indexOf('&');
+            if(remain != -1 && segment.contains(REMAIN)){
+                segment = segment.substring(0, remain);
+            }
+            ret = ret == null ? root(segment) : ret.append(segment);
+            if(end == -1) return ret;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 清空路径表，在整个分析结束后调用，之前创建的路径（THIS、SOURCE、UNKNOWN、PARAMS 除外）不能再与新路径比较
+     * ConcurrentHashMap.clear 不会释放扩容后的数组，解析缓存直接替换为新的表
+     */
+    public static void clear(){
+        PARSED = new ConcurrentHashMap<>();
+        ROOTS.clear();
+        reset(THIS);
+        reset(SOURCE);
+        reset(UNKNOWN);
+        for(AccessPath param:PARAMS){
+            reset(param);
+        }
+    }
+
+    private static void reset(AccessPath root){
+        root.children = null;
+        ROOTS.put(root.segment, root);
+    }
+
+    /**
+     * base 为 null 时，以 UNKNOWN 为根节点
+     */
+    public static AccessPath append(AccessPath base, String segment){
+        return (base == null ? UNKNOWN : base).append(segment);
+    }
+
+    public static AccessPath append(AccessPath base, int index){
+        return append(base, String.valueOf(index));
+    }
+
+    public AccessPath append(String segment){
+        Map<String, AccessPath> map = children;
+        if(map == null){
+            synchronized (this){
+                map = children;
+                if(map == null){
+                    map = new ConcurrentHashMap<>(4);
+                    children = map;
+                }
+            }
+        }
+        AccessPath child = map.get(segment);
+        if(child == null){
+            child = map.computeIfAbsent(segment, k -> new AccessPath(this, k));
+        }
+        return child;
+    }
+
+    /**
+     * 当前路径中是否已经存在该段落，用于避免递归的类属性无限增长
+     */
+    public boolean contains(String segment){
+        for(AccessPath path = this; path != null; path = path.parent){
+            if(path.segment.equals(segment)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 根节点的位置，参考 PositionHelper
+     */
+    public int getPosition(){
+        return position;
+    }
+
+    /**
+     * @return 根节点是否为 this 或 param-n
+     */
+    public boolean isRelated(){
+        return related;
+    }
+
+    public boolean isRoot(){
+        return parent == null;
+    }
+
+    public AccessPath getParent(){
+        return parent;
+    }
+
+    public String getSegment(){
+        return segment;
+    }
+
+    /**
+     * @return 当前段落为数组下标时返回下标，否则返回-1
+     */
+    public int getIndex(){
+        return index;
+    }
+
+    public static String toString(AccessPath path){
+        return path == null ? null : path.toString();
+    }
+
+    @Override
+    public String toString(){
+        String s = string;
+        if(s == null){
+            s = parent == null ? segment : parent.toString() + SEPARATOR + segment;
+            string = s;
+        }
+        return s;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return this == o;
+    }
+
+    @Override
+    public int hashCode(){
+        return hash;
+    }
+
+    private static boolean isNumeric(String segment){
+        if(segment.isEmpty()) return false;
+        for(int i = 0; i < segment.length(); i++){
+            if(!Character.isDigit(segment.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static int parseIndex(String segment){
+        try{
+            return Integer.parseInt(segment);
+        }catch (NumberFormatException e){
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package tabby.core.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的函数 actions，调用点直接按顺序应用，不再解析字符串
+ * actions 仍以 Map<String, String> 的形式保存到数据库和规则文件中，这里只是运行时的视图
+ * 顺序与编译时 actions 的遍历顺序一致
+ * @author wh1t3p1g
+ * @since 2023/2/19
+ */
+public final class ActionSummary {
+
+    public static final String RETURN = "return";
+    public static final String CLEAR = "clear";
+
+    private static final Transfer[] NO_TRANSFERS = new Transfer[0];
+
+    private final Transfer[] transfers;
+    private final boolean hasReturn;
+    private final AccessPath returnPath;
+    private final int version;
+
+    private ActionSummary(Transfer[] transfers, boolean hasReturn, AccessPath returnPath, int version){
+        this.transfers = transfers;
+        this.hasReturn = hasReturn;
+        this.returnPath = returnPath;
+        this.version = version;
+    }
+
+    /**
+     * @param actions 函数的 actions
+     * @param version 编译时 actions 的版本，用于判断是否需要重新编译
+     */
+    public static ActionSummary compile(Map<String, String> actions, int version){
+        if(actions == null || actions.isEmpty()){
+            return new ActionSummary(NO_TRANSFERS, false, null, version);
+        }
+        List<Transfer> transfers = new ArrayList<>(actions.size());
+        boolean hasReturn = false;
+        AccessPath returnPath = null;
+        for(Map.Entry<String, String> entry:actions.entrySet()){
+            String position = entry.getKey();
+            String related = entry.getValue();
+            if(RETURN.equals(position)){ // return的修正 不在调用点处理，由assign的时候自己去处理
+                hasReturn = true;
+                returnPath = AccessPath.parse(related);
+            }else if(CLEAR.equals(related)){
+                transfers.add(new Transfer(AccessPath.parse(position), null, true, false));
+            }else{
+                boolean remain = related != null && related.contains(AccessPath.REMAIN);
+                transfers.add(new Transfer(AccessPath.parse(position), AccessPath.parse(related), false, remain));
+            }
+        }
+        return new ActionSummary(transfers.toArray(NO_TRANSFERS), hasReturn, returnPath, version);
+    }
+
+    public Transfer[] getTransfers(){
+        return transfers;
+    }
+
+    public boolean hasReturn(){
+        return hasReturn;
+    }
+
+    public AccessPath getReturnPath(){
+        return returnPath;
+    }
+
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * 单个污点传递操作
+     * clear 为 true 时清除 target 的污点状态，否则将 source 的状态赋值给 target
+     */
+    public static final class Transfer {
+
+        private final AccessPath target;
+        private final AccessPath source;
+        private final boolean clear;
+        private final boolean remain;
+
+        private Transfer(AccessPath target, AccessPath source, boolean clear, boolean remain){
+            this.target = target;
+            this.source = source;
+            this.clear = clear;
+            this.remain = remain;
+        }
+
+        public AccessPath getTarget(){
+            return target;
+        }
+
+        public AccessPath getSource(){
+            return source;
+        }
+
+        public boolean isClear(){
+            return clear;
+        }
+
+        /**
+         * @return 是否保留 target 原有的污点状态，对应 actions 中的 &remain
+         */
+        public boolean isRemain(){
+            return remain;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package tabby.core.data;
+
+import tabby.config.GlobalConfiguration;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个函数分析的预算
+ * 一个顶层函数及其按需分析的被调用函数共用同一个预算，包括处理的语句数、耗时以及调用深度
+ * 超出语句数或耗时后，flowThrough不再处理剩余语句，当前函数的分析提前结束，也不再开始新的被调用函数分析，其他顶层函数的分析不受影响
+ * 超出调用深度时，只是不再继续分析更深的被调用函数
+ * 多个函数共用同一个预算，单个函数是否超出预算通过 mark 与函数开始分析时的状态比较
+ * @author wh1t3p1g
+ * @since 2023/2/16
+ */
+public class AnalysisBudget {
+
+    public static final String UNITS = "units";
+    public static final String TIME = "time";
+    public static final String DEPTH = "depth";
+    public static final String CANCELLED = "cancelled";
+
+    /**
+     * 正在进行中的预算，全局超时后统一取消
+     */
+    private static final Set<AnalysisBudget> RUNNING = ConcurrentHashMap.newKeySet();
+    /**
+     * 全局停止标记，全局超时后设置
+     * 已经在排队的分析在开始时直接返回，正在进行中的分析在处理下一条语句时结束
+     */
+    private static volatile boolean stopped = false;
+
+    private final long deadline;
+    private long units = 0; // 已经处理的语句数
+    private int depthExceeded = 0; // 因超出调用深度而没有分析的被调用函数数量
+    // 可能被其他线程取消
+    private volatile String reason = null;
+
+    private AnalysisBudget(){
+        long time = GlobalConfiguration.BUDGET_TIME;
+        deadline = time > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(time) : Long.MAX_VALUE;
+    }
+
+    public static AnalysisBudget start(){
+        AnalysisBudget budget = new AnalysisBudget();
+        RUNNING.add(budget);
+        return budget;
+    }
+
+    public void finish(){
+        RUNNING.remove(this);
+    }
+
+    /**
+     * 处理一条语句前调用
+     * @return false 表示预算已经用完，不再继续处理
+     */
+    public boolean consume(){
+        if(reason != null) return false;
+        if(stopped){
+            reason = CANCELLED;
+            return false;
+        }
+        if(GlobalConfiguration.BUDGET_UNITS > 0 && units >= GlobalConfiguration.BUDGET_UNITS){
+            reason = UNITS;
+            return false;
+        }
+        if(System.nanoTime() > deadline){
+            reason = TIME;
+            return false;
+        }
+        units++;
+        return true;
+    }
+
+    /**
+     * 是否允许继续分析该深度的被调用函数
+     */
+    public boolean allowDepth(int depth){
+        if(GlobalConfiguration.BUDGET_DEPTH <= 0 || depth <= GlobalConfiguration.BUDGET_DEPTH) return true;
+        depthExceeded++;
+        return false;
+    }
+
+    /**
+     * 记录当前的预算使用情况，在函数开始分析时调用
+     */
+    public Mark mark(){
+        return new Mark(units, depthExceeded);
+    }
+
+    /**
+     * @return mark之后处理的语句数，包括按需分析的被调用函数
+     */
+    public long getUnitsSince(Mark mark){
+        return units - mark.units;
+    }
+
+    /**
+     * 语句数、耗时用完或被取消后不会恢复，之后结束分析的函数都属于不完整的分析
+     * 超出调用深度只影响mark之后确实跳过了被调用函数的分析
+     * @return mark之后超出预算的原因，未超出时为null
+     */
+    public String getReasonSince(Mark mark){
+        if(reason != null) return reason;
+        return depthExceeded > mark.depthExceeded ? DEPTH : null;
+    }
+
+    public void cancel(String reason){
+        if(this.reason == null){
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * 停止所有分析，包括正在进行中的和已经在排队的，直到调用 resume
+     * @return 正在进行中被取消的数量
+     */
+    public static int stopAll(){
+        stopped = true;
+        return cancelAll(CANCELLED);
+    }
+
+    public static void resume(){
+        stopped = false;
+    }
+
+    public static boolean isStopped(){
+        return stopped;
+    }
+
+    /**
+     * 取消所有正在进行中的分析，已经在排队的分析不受影响
+     * @return 被取消的数量
+     */
+    public static int cancelAll(String reason){
+        int count = 0;
+        for(AnalysisBudget budget:RUNNING){
+            budget.cancel(reason);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 不包括调用深度，超出调用深度时仍然可以继续分析其他被调用函数
+     * @return 语句数、耗时用完或被取消的原因，此后不再开始新的函数分析；未用完时为null
+     */
+    public String getReason(){
+        return reason;
+    }
+
+    /**
+     * 函数开始分析时的预算使用情况
+     */
+    public static final class Mark {
+        private final long units;
+        private final int depthExceeded;
+
+        private Mark(long units, int depthExceeded){
+            this.units = units;
+            this.depthExceeded = depthExceeded;
+        }
+    }
+}
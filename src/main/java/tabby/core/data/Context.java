@@ -11,6 +11,7 @@ import tabby.dal.caching.bean.ref.MethodReference;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,11 +34,15 @@ public class Context {
     private int depth; // 当前函数调用深度，限制无限循环的情况
     // 经过flowThough 函数时，拷贝 in集合
     private Map<Local, TabbyVariable> localMap;
+    // localMap 中仍与其他流集合共享实例的变量，第一次获取时才进行拷贝
+    private Set<Local> sharedLocals = new HashSet<>();
     private Map<Local, Set<TabbyVariable>> maybeLocalMap = new HashMap<>();
     private Map<Value, TabbyVariable> globalMap = new HashMap<>();
     // 用于return给当前
     private TabbyVariable returnVar;
     private String topMethodSignature;
+    // 顶层函数及其所有子函数域共用
+    private AnalysisBudget budget;
 
     public Context(){
         this.localMap = new HashMap<>();
@@ -53,7 +58,9 @@ public class Context {
     }
 
     public static Context newInstance(String methodSignature, MethodReference methodReference) {
-        return new Context(methodSignature, methodReference,null,0);
+        Context context = new Context(methodSignature, methodReference,null,0);
+        context.setBudget(AnalysisBudget.start());
+        return context;
     }
 
     /**
@@ -63,10 +70,21 @@ public class Context {
         Context subContext = new Context(methodSignature, methodReference, this,depth + 1);
         subContext.setGlobalMap(globalMap); // 同步所有globalmap
         subContext.setTopMethodSignature(topMethodSignature);
+        subContext.setBudget(budget);
         return subContext;
     }
 
 
+    /**
+     * flowThrough 时使用，localMap 直接共享 in 集合中的变量实例
+     * 变量在当前语句中第一次被获取时才进行deepClone，未被访问的变量不再拷贝
+     * @param in
+     */
+    public void shareLocalMap(Map<Local, TabbyVariable> in){
+        localMap = new HashMap<>(in);
+        sharedLocals = new HashSet<>(in.keySet());
+    }
+
     /**
      * 接受 Local 和 staticField
      * 从localMap 和 globalMap 中分别查询对应的变量实例
@@ -77,6 +95,10 @@ public class Context {
         TabbyVariable var = null;
         if(sootValue instanceof Local){ // find from local map
             var = localMap.get(sootValue);
+            if(var != null && sharedLocals.remove(sootValue)){ // 共享的变量，修改前先拷贝
+                var = var.deepClone(new ArrayList<>());
+                localMap.put((Local) sootValue, var);
+            }
             if(var == null){ // 新建变量 先从初始表中获取，如果初始表里没有，再新建变量
                 TabbyVariable tempVar = initialMap.get(sootValue);
                 if(tempVar != null){
@@ -131,11 +153,11 @@ public class Context {
             TabbyVariable var = getOrAdd(thisVar);
             var.setThis(true);
             var.getValue().setPolluted(true);
-            var.getValue().setRelatedType("this");
+            var.getValue().setRelatedType(AccessPath.THIS);
             var.getFieldMap().forEach((fieldName, fieldVar) -> {
                 if(fieldVar != null){
                     fieldVar.getValue().setPolluted(true);
-                    fieldVar.getValue().setRelatedType("this|"+fieldName);
+                    fieldVar.getValue().setRelatedType(AccessPath.THIS.append(fieldName));
                 }
             });
         }
@@ -146,12 +168,12 @@ public class Context {
         paramVar.setParam(true);
         paramVar.setParamIndex(paramIndex);
         paramVar.getValue().setPolluted(true);
-        paramVar.getValue().setRelatedType("param-"+paramIndex);
+        paramVar.getValue().setRelatedType(AccessPath.param(paramIndex));
 
         paramVar.getFieldMap().forEach((fieldName, fieldVar) -> {
             if(fieldVar != null){
                 fieldVar.getValue().setPolluted(true);
-                fieldVar.getValue().setRelatedType("param-"+paramIndex+"|"+fieldName);
+                fieldVar.getValue().setRelatedType(AccessPath.param(paramIndex).append(fieldName));
             }
         });
         args.put(paramIndex, local);
@@ -160,6 +182,7 @@ public class Context {
     public void unbind(Value value){
         if(localMap.containsKey(value)){
             localMap.remove(value);
+            sharedLocals.remove(value);
         }else if(globalMap.containsKey(value)){
             globalMap.remove(value);
         }
@@ -183,5 +206,8 @@ public class Context {
     public void clear(){
         globalMap.clear();
         maybeLocalMap.clear();
+        if(preContext == null && budget != null){
+            budget.finish();
+        }
     }
 }
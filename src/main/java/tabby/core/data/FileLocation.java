@@ -5,6 +5,7 @@ import org.apache.commons.lang3.RandomStringUtils;
 import tabby.config.GlobalConfiguration;
 import tabby.util.FileUtils;
 import tabby.util.JspUtils;
+import tabby.util.VirtualClasspath;
 
 import java.io.File;
 import java.io.IOException;
@@ -60,6 +61,18 @@ public class FileLocation {
     public Set<String> resolve(){
         Path targetPath = null;
         if(isWar || isFatJar){
+            if(GlobalConfiguration.IS_VIRTUAL_CLASSPATH){
+                // 直接从压缩包中读取，不支持时再解压
+                try{
+                    Set<String> virtual = VirtualClasspath.open(path);
+                    if(virtual != null){
+                        cps.addAll(virtual);
+                        return cps;
+                    }
+                }catch (IOException e){
+                    e.printStackTrace();
+                }
+            }
             // unpack
             try{
                 targetPath = FileUtils.unpack(path, getFileName());
@@ -23,6 +23,7 @@ public class TabbyRule {
         ruleMap = new HashMap<>();
         if(rules != null){
             rules.forEach(rule -> {
+                rule.compile();
                 ruleMap.put(rule.function, rule);
             });
         }
@@ -48,12 +49,13 @@ public class TabbyRule {
         private String type;
         private Map<String, String> actions;
         private String vul;
-        private List<Integer> polluted;
+        private int[] polluted;
         private List<String> signatures;
+        private transient Set<String> signatureSet;
 
         public Rule() {
             signatures = new ArrayList<>();
-            polluted = new ArrayList<>();
+            polluted = new int[0];
             actions = new HashMap<>();
         }
 
@@ -77,7 +79,7 @@ public class TabbyRule {
             return actions;
         }
 
-        public List<Integer> getPolluted(){
+        public int[] getPolluted(){
             return polluted;
         }
 
@@ -102,9 +104,17 @@ public class TabbyRule {
         }
 
         public boolean isContainsSignature(String sig){
+            if(signatureSet != null) return signatureSet.contains(sig);
             return signatures != null && signatures.contains(sig);
         }
 
+        /**
+         * 加载规则后调用，将signatures转为hash集合
+         */
+        public void compile(){
+            signatureSet = signatures == null ? null : new HashSet<>(signatures);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
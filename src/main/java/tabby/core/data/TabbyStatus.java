@@ -13,38 +13,31 @@ import java.util.Set;
 public class TabbyStatus {
     // polluted
     boolean isPolluted = false;
-    // polluted positions like param-0,param-1,field-name1,this
-    Set<String> types = new HashSet<>();
+    // polluted positions like param-0,param-1,param-0|<field sig>,this
+    Set<AccessPath> types = new HashSet<>();
 
-    public void setType(String type){
+    public void setType(AccessPath type){
         types.clear();
         if(type != null){
             types.add(type);
         }
     }
 
-    public void addType(String type){
+    public void addType(AccessPath type){
         if(type != null){
             types.add(type);
         }
     }
 
-    public void concatType(String type){
-        Set<String> newTypes = new HashSet<>();
-        for(String old:types){
-            newTypes.add(String.format("{}|{}", old, type));
-        }
-    }
-
     /**
      * 只获取第一个polluted type
      * 当存在多个polluted type时，获取第一个，做近似化处理
      * @return
      */
-    public String getFirstPollutedType(){
+    public AccessPath getFirstPollutedType(){
         if(!isPolluted) return null;
-        for(String type:types){
-            if(type != null && (type.startsWith("this") || type.startsWith("param-"))){
+        for(AccessPath type:types){
+            if(type != null && type.isRelated()){
                 return type;
             }
         }
@@ -8,9 +8,10 @@ import soot.ArrayType;
 import soot.Local;
 import soot.Type;
 import soot.Value;
+import tabby.util.IdGenerator;
+import tabby.util.Symbols;
 
 import java.io.Serializable;
-import java.util.UUID;
 
 /**
  * @author wh1t3P1g
@@ -20,7 +21,7 @@ import java.util.UUID;
 @Setter
 public class TabbyValue implements Serializable {
 
-    private UUID uuid;
+    private long uuid;
     private Type type;
     private String typeName;
     private Value origin;
@@ -32,22 +33,22 @@ public class TabbyValue implements Serializable {
     private TabbyStatus status = new TabbyStatus();
 
     public TabbyValue(){
-        uuid = UUID.randomUUID();
+        uuid = IdGenerator.next();
     }
 
     public TabbyValue(Local value){
-        uuid = UUID.randomUUID();
+        uuid = IdGenerator.next();
         type = value.getType();
-        typeName = type.toString();
+        typeName = Symbols.intern(type.toString());
         origin = value;
 
         isArray = isArrayType(value.getType());
     }
 
-    public TabbyValue(Type type, String relatedType){
-        uuid = UUID.randomUUID();
+    public TabbyValue(Type type, AccessPath relatedType){
+        uuid = IdGenerator.next();
         this.type = type;
-        typeName = type.toString();
+        typeName = Symbols.intern(type.toString());
 
         isArray = isArrayType(type);
         status.setPolluted(true);
@@ -84,11 +85,11 @@ public class TabbyValue implements Serializable {
         return false;
     }
 
-    public String getRelatedType(){
+    public AccessPath getRelatedType(){
         return status.getFirstPollutedType();
     }
 
-    public void setRelatedType(String type){
+    public void setRelatedType(AccessPath type){
         status.setType(type);
     }
 
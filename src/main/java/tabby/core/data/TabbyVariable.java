@@ -8,6 +8,7 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import soot.*;
 import soot.jimple.FieldRef;
 import soot.jimple.StaticFieldRef;
+import tabby.util.IdGenerator;
 import tabby.util.SemanticHelper;
 
 import java.util.*;
@@ -23,7 +24,7 @@ import java.util.regex.Pattern;
 @Slf4j
 public class TabbyVariable {
 
-    private String uuid;
+    private long uuid;
     private String name;
     private Value origin;
     private boolean isThis = false;
@@ -33,7 +34,7 @@ public class TabbyVariable {
     // 后续会改变的是，当前参数的value
     private TabbyValue value = null;
     private TabbyVariable owner = null;
-    private String firstPollutedVarRelatedType = null;
+    private AccessPath firstPollutedVarRelatedType = null;
 
     // fields
     private Map<String, TabbyVariable> fieldMap = new HashMap<>();
@@ -41,10 +42,10 @@ public class TabbyVariable {
     private Map<Integer, TabbyVariable> elements = new HashMap<>();
 
     private TabbyVariable(){
-        uuid = UUID.randomUUID().toString();
+        uuid = IdGenerator.next();
     }
 
-    private TabbyVariable(String uuid){
+    private TabbyVariable(long uuid){
         this.uuid = uuid;
     }
 
@@ -57,7 +58,7 @@ public class TabbyVariable {
         }else{
             name = sootValue.toString();
         }
-        uuid = UUID.randomUUID().toString();
+        uuid = IdGenerator.next();
         value = tabbyValue;
         origin = sootValue;
     }
@@ -94,12 +95,12 @@ public class TabbyVariable {
 
         if(baseVar != null && baseVar.isPolluted(-1)){
             tabbyValue.setPolluted(true);
-            String type = baseVar.getValue().getRelatedType();
+            AccessPath type = baseVar.getValue().getRelatedType();
 
             if(type != null && type.contains(sootField.getSignature())){
                 tabbyValue.setRelatedType(type);
             }else{
-                tabbyValue.setRelatedType(type + "|" + sootField.getSignature());
+                tabbyValue.setRelatedType(AccessPath.append(type, sootField.getSignature()));
             }
 
         }
@@ -121,12 +122,12 @@ public class TabbyVariable {
 
         if(baseVar != null && baseVar.isPolluted(-1)){
             tabbyValue.setPolluted(true);
-            String type = baseVar.getValue().getRelatedType();
+            AccessPath type = baseVar.getValue().getRelatedType();
 
             if(type != null && type.contains(sfr.getSignature())){
                 tabbyValue.setRelatedType(type);
             }else{
-                tabbyValue.setRelatedType(type + "|" + sfr.getSignature());
+                tabbyValue.setRelatedType(AccessPath.append(type, sfr.getSignature()));
             }
 
         }
@@ -239,7 +240,7 @@ public class TabbyVariable {
         return false;
     }
 
-    public String getFirstPollutedVarRelatedType(){
+    public AccessPath getFirstPollutedVarRelatedType(){
         if(firstPollutedVarRelatedType == null){
             containsPollutedVar(new ArrayList<>());
         }
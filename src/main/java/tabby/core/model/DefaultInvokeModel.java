@@ -40,7 +40,7 @@ public class DefaultInvokeModel{
         String signature = targetMethodRef.getSignature();
         if(IGNORE_LIST.contains(signature)) return ;
         // 剔除递归调用自身的情况
-        if(methodRef.getId().equals(targetMethodRef.getId())) return ;
+        if(methodRef.getId() == targetMethodRef.getId()) return ;
 
         InvokeExpr ie = stmt.getInvokeExpr();
 
@@ -54,8 +54,7 @@ public class DefaultInvokeModel{
         }
         call.setLineNum(stmt.getJavaSourceStartLineNumber());
 
-        if(!methodRef.getCallEdge().contains(call)){
-            methodRef.getCallEdge().add(call);
+        if(methodRef.getCallEdge().add(call)){
             dataContainer.store(call);
         }
     }
@@ -0,0 +1,94 @@
+package tabby.core.pipeline;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.extern.slf4j.Slf4j;
+import tabby.config.GlobalConfiguration;
+import tabby.util.Metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次运行结束后，将各个stage的耗时以及 Metrics 中的数据写到 tabby.output.directory/tabby-report.json
+ * 运行出错时同样输出，并记录错误信息
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@Slf4j
+public class RunReport {
+
+    public static final String FILENAME = "tabby-report.json";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long start = System.nanoTime();
+    private String error = null;
+
+    public void setError(Throwable e){
+        error = e.getClass().getName() + ": " + e.getMessage();
+    }
+
+    public Map<String, Object> build(Collection<Stage> stages){
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.ofEpochMilli(startedAt).toString());
+        report.put("finishedAt", Instant.now().toString());
+        report.put("duration", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        report.put("success", error == null);
+        if(error != null){
+            report.put("error", error);
+        }
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("mode", GlobalConfiguration.MODE);
+        settings.put("target", GlobalConfiguration.TARGET);
+        settings.put("threads", GlobalConfiguration.THREAD_POOL_SIZE);
+        settings.put("build", GlobalConfiguration.IS_BUILD_ENABLE);
+        settings.put("load", GlobalConfiguration.IS_LOAD_ENABLE);
+        report.put("settings", settings);
+
+        List<Map<String, Object>> stageList = new ArrayList<>();
+        for(Stage stage:stages){
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", stage.getName());
+            item.put("finished", stage.isFinished());
+            item.put("wallTime", TimeUnit.NANOSECONDS.toMillis(stage.getWallTime()));
+            item.put("cpuTime", TimeUnit.NANOSECONDS.toMillis(stage.getCpuTime()));
+            stageList.add(item);
+        }
+        report.put("stages", stageList);
+        report.put("timers", Metrics.getTimers());
+        report.put("counters", Metrics.getCounters());
+        report.put("histograms", Metrics.getHistograms());
+
+        Runtime runtime = Runtime.getRuntime();
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("maxHeap", runtime.maxMemory() / 1024 / 1024);
+        memory.put("usedHeap", (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024);
+        report.put("memory", memory);
+        return report;
+    }
+
+    /**
+     * 时间单位均为 milliseconds，内存单位为 MB
+     */
+    public void write(Collection<Stage> stages){
+        Path path = Paths.get(GlobalConfiguration.OUTPUT_DIRECTORY, FILENAME);
+        try{
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try(Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)){
+                GSON.toJson(build(stages), writer);
+            }
+            log.info("Run report saved to {}", path.toAbsolutePath());
+        }catch (IOException e){
+            log.error("Save run report error: {}", e.getMessage());
+        }
+    }
+}
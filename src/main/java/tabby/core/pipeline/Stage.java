@@ -0,0 +1,57 @@
+package tabby.core.pipeline;
+
+import lombok.Getter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * pipeline中的单个阶段
+ * 声明阶段名、依赖的阶段以及具体执行内容，执行后记录wall time和cpu time
+ * @author wh1t3p1g
+ * @since 2023/2/6
+ */
+@Getter
+public class Stage {
+
+    private final String name;
+    private final Set<String> dependencies;
+    private final Task task;
+    /**
+     * 单位 nanoseconds
+     * cpu time 仅统计当前stage所在线程，不包含提交到 tabby-collector 线程池的任务
+     */
+    private long wallTime = 0;
+    private long cpuTime = 0;
+    private boolean isFinished = false;
+
+    public Stage(String name, Task task, String... dependencies) {
+        this.name = name;
+        this.task = task;
+        this.dependencies = new LinkedHashSet<>(Arrays.asList(dependencies));
+    }
+
+    public void execute() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        boolean isCpuTimeSupported = bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled();
+        long cpuStart = isCpuTimeSupported ? bean.getCurrentThreadCpuTime() : 0;
+        long start = System.nanoTime();
+        try{
+            task.run();
+            isFinished = true;
+        }finally {
+            wallTime = System.nanoTime() - start;
+            if(isCpuTimeSupported){
+                cpuTime = bean.getCurrentThreadCpuTime() - cpuStart;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+}
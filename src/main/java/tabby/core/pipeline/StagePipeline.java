@@ -0,0 +1,109 @@
+package tabby.core.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import tabby.config.AsyncConfiguration;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按依赖关系调度各个stage
+ * 无依赖关系的stage在有界线程池中并行执行，等待依赖时不占用cpu
+ * 依赖必须先于当前stage声明，保证不会出现环
+ * @author wh1t3p1g
+ * @since 2023/2/6
+ */
+@Slf4j
+public class StagePipeline {
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    public StagePipeline addStage(String name, Stage.Task task, String... dependencies){
+        if(stages.containsKey(name)){
+            throw new IllegalArgumentException("Duplicate stage: " + name);
+        }
+        for(String dependency:dependencies){
+            if(!stages.containsKey(dependency)){
+                throw new IllegalArgumentException("Stage " + name + " depends on undeclared stage " + dependency);
+            }
+        }
+        stages.put(name, new Stage(name, task, dependencies));
+        return this;
+    }
+
+    public Collection<Stage> getStages(){
+        return Collections.unmodifiableCollection(stages.values());
+    }
+
+    public void run(){
+        if(stages.isEmpty()) return;
+
+        int size = Math.max(1, Math.min(stages.size(), AsyncConfiguration.CORE_POOL_SIZE));
+        ExecutorService executor = Executors.newFixedThreadPool(size, new StageThreadFactory());
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        try{
+            for(Stage stage:stages.values()){
+                List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+                for(String dependency:stage.getDependencies()){
+                    dependencies.add(futures.get(dependency));
+                }
+                // 依赖的stage出错时，当前stage不会被执行
+                CompletableFuture<Void> future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                        .thenRunAsync(() -> execute(stage), executor);
+                futures.put(stage.getName(), future);
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        }catch (CompletionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }finally {
+            executor.shutdown();
+            report();
+        }
+    }
+
+    private void execute(Stage stage){
+        log.info("Stage {} START!", stage.getName());
+        try {
+            stage.execute();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        log.info("Stage {} DONE!", stage.getName());
+    }
+
+    public void report(){
+        for(Stage stage:stages.values()){
+            if(stage.isFinished()){
+                log.info("Stage {} cost {} ms, cpu {} ms.", stage.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(stage.getWallTime()),
+                        TimeUnit.NANOSECONDS.toMillis(stage.getCpuTime()));
+            }else{
+                log.error("Stage {} not finished.", stage.getName());
+            }
+        }
+    }
+
+    private static class StageThreadFactory implements ThreadFactory {
+
+        /**
+         * 函数分析存在较深的递归调用，原先跑在主线程上
+         * 这里给stage线程预留足够的栈空间，避免StackOverflowError
+         */
+        private static final long STACK_SIZE = 256L * 1024 * 1024;
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(null, r, "tabby-stage-" + counter.incrementAndGet(), STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
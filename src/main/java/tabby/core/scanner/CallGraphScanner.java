@@ -8,12 +8,19 @@ import tabby.config.GlobalConfiguration;
 import tabby.core.collector.CallEdgeCollector;
 import tabby.core.collector.CallGraphCollector;
 import tabby.core.container.DataContainer;
+import tabby.core.container.IncrementalCacheContainer;
+import tabby.core.container.MethodSummaryContainer;
+import tabby.core.toolkit.BodyRetriever;
+import tabby.core.toolkit.CallGraphScheduler;
 import tabby.dal.caching.bean.ref.MethodReference;
 import tabby.dal.caching.service.MethodRefService;
+import tabby.util.Metrics;
 import tabby.util.TickTock;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 收集所有调用关系，这部分不做污点分析
@@ -33,28 +40,85 @@ public class CallGraphScanner {
     public CallGraphCollector callGraphCollector;
     @Autowired
     private CallEdgeCollector callEdgeCollector;
+    @Autowired
+    private IncrementalCacheContainer incrementalCacheContainer;
+    @Autowired
+    private MethodSummaryContainer methodSummaryContainer;
 
     public void run() {
         collect();
+        methodSummaryContainer.save(dataContainer.getSavedMethodRefs().values());
         save();
     }
 
     public void collect() {
         Collection<MethodReference> targets =
                 new ArrayList<>(dataContainer.getSavedMethodRefs().values());
+        if(incrementalCacheContainer.isEnabled()){
+            // 从缓存中加载的函数，调用边已经一同加载
+            targets.removeIf(incrementalCacheContainer::isLoaded);
+        }
         log.info("Build call graph. START!");
-        TickTock tickTock = new TickTock(targets.size(), true);
-        for (MethodReference target : targets) {
-            if(GlobalConfiguration.IS_FULL_CALL_GRAPH_CONSTRUCT){
-                callEdgeCollector.collect(target, dataContainer, tickTock);
-            }else{
-                callGraphCollector.collect(target, dataContainer, tickTock);
+        long start = System.nanoTime();
+        if(!GlobalConfiguration.IS_FULL_CALL_GRAPH_CONSTRUCT && GlobalConfiguration.IS_BOTTOM_UP_SCHEDULE){
+            collectBottomUp(targets);
+        }else{
+            TickTock tickTock = new TickTock(targets.size(), true);
+            for (MethodReference target : targets) {
+                if(GlobalConfiguration.IS_FULL_CALL_GRAPH_CONSTRUCT){
+                    callEdgeCollector.collect(target, dataContainer, tickTock);
+                }else{
+                    callGraphCollector.collect(target, dataContainer, tickTock);
+                }
             }
+            tickTock.await();
         }
-        tickTock.await();
+        Metrics.timer("phase.callGraph").record(System.nanoTime() - start);
+        Metrics.counter("callGraph.methods").add(targets.size());
+        BodyRetriever.report();
         log.info("Build call graph. DONE!");
     }
 
+    /**
+     * 按SCC层级自底向上分析，同一层级的SCC之间没有调用关系，在 tabby-collector 线程池中并行分析
+     * 当前层级全部完成后再进入下一层级
+     * 所有层级共用 tabby.build.thread.timeout 的超时时间，超时后剩余的层级不再分析
+     */
+    private void collectBottomUp(Collection<MethodReference> targets){
+        long start = System.nanoTime();
+        List<List<CallGraphScheduler.Component>> levels = CallGraphScheduler.schedule(targets, dataContainer);
+        Metrics.timer("callGraph.schedule").record(System.nanoTime() - start);
+        int total = levels.stream().mapToInt(List::size).sum();
+        Metrics.counter("callGraph.levels").add(levels.size());
+        Metrics.counter("callGraph.components").add(total);
+        for(List<CallGraphScheduler.Component> level:levels){
+            for(CallGraphScheduler.Component component:level){
+                Metrics.histogram("callGraph.componentSize").record(component.getMethods().size());
+            }
+        }
+        log.info("Schedule {} methods into {} components, {} levels.", targets.size(), total, levels.size());
+        int done = 0;
+        int split = Math.max(1, levels.size() / 20); // 5% 输出一次
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(GlobalConfiguration.TIMEOUT);
+        for(int i = 0; i < levels.size(); i++){
+            if(System.nanoTime() - deadline >= 0){
+                log.error("Reached the max timeout, skip {}/{} levels, {} components.",
+                        levels.size() - i, levels.size(), total - done);
+                break;
+            }
+            List<CallGraphScheduler.Component> level = levels.get(i);
+            TickTock tickTock = new TickTock(level.size(), false);
+            for(CallGraphScheduler.Component component:level){
+                callGraphCollector.collect(component, dataContainer, tickTock);
+            }
+            tickTock.await(deadline);
+            done += level.size();
+            if((i + 1) % split == 0 || i == levels.size() - 1){
+                log.info("Level {}/{}, components {}/{}", i + 1, levels.size(), done, total);
+            }
+        }
+    }
+
     public void save() {
         log.info("Save remained data to graphdb. START!");
         dataContainer.save("class");
@@ -5,8 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import soot.*;
+import tabby.config.AsyncConfiguration;
+import tabby.config.GlobalConfiguration;
+import tabby.core.collector.ClassEdgeCollector;
 import tabby.core.collector.ClassInfoCollector;
 import tabby.core.container.DataContainer;
+import tabby.core.container.IncrementalCacheContainer;
 import tabby.dal.caching.bean.edge.Alias;
 import tabby.dal.caching.bean.edge.Extend;
 import tabby.dal.caching.bean.edge.Has;
@@ -14,7 +18,9 @@ import tabby.dal.caching.bean.edge.Interfaces;
 import tabby.dal.caching.bean.ref.ClassReference;
 import tabby.dal.caching.bean.ref.MethodReference;
 import tabby.util.JavaVersion;
+import tabby.util.Metrics;
 import tabby.util.SemanticHelper;
+import tabby.util.VirtualClasspath;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -39,14 +45,37 @@ public class ClassInfoScanner {
     @Autowired
     private ClassInfoCollector collector;
 
+    @Autowired
+    private ClassEdgeCollector edgeCollector;
+
+    @Autowired
+    private IncrementalCacheContainer incrementalCacheContainer;
+
+    /**
+     * 缺失父类、接口的补充收集均需要持有当前锁
+     * 防止多个线程重复创建同一个classRef
+     */
+    private static final Object COLLECT_LOCK = new Object();
+    private static final int MIN_PARTITION_SIZE = 1000;
+
     public void run(List<String> paths){
         // 多线程提取基础信息
+        long start = System.nanoTime();
         Map<String, CompletableFuture<ClassReference>> classes = loadAndExtract(paths);
+        Metrics.timer("phase.classLoad").record(System.nanoTime() - start);
+        start = System.nanoTime();
         transform(classes.values()); // 等待收集结束，并保存classRef
+        Metrics.timer("phase.classInfo").record(System.nanoTime() - start);
         List<String> runtimeClasses = new ArrayList<>(classes.keySet());
         classes.clear();
-        // 单线程提取关联信息
-        buildClassEdges(runtimeClasses);
+        // 提取关联信息
+        start = System.nanoTime();
+        if(GlobalConfiguration.IS_PARALLEL_CLASS_EDGES_CREATE){
+            buildClassEdgesInParallel(runtimeClasses);
+        }else{
+            buildClassEdges(runtimeClasses);
+        }
+        Metrics.timer("phase.classEdges").record(System.nanoTime() - start);
         save();
     }
 
@@ -60,27 +89,37 @@ public class ClassInfoScanner {
         for (final String path : targets) {
             List<String> classes = getTargetClasses(path, moduleClasses);
             if(classes == null) continue;
+            incrementalCacheContainer.bind(path, classes);
 
             for (String cl : classes) {
                 try{
 //                    SootClass theClass = SemanticHelper.loadClass(cl);
+                    long start = System.nanoTime();
                     SootClass theClass = Scene.v().loadClassAndSupport(cl);
+                    Metrics.timer("class.load").record(System.nanoTime() - start);
                     if (!theClass.isPhantom()) {
                         // 这里存在类数量不一致的情况，是因为存在重复的对象
                         results.put(cl, collector.collect(theClass));
                         theClass.setApplicationClass();
+                    }else{
+                        Metrics.counter("class.phantom").increment();
                     }
                 }catch (Exception e){
+                    Metrics.counter("class.loadError").increment();
                     log.error("Load Error: {}, Message: {}", cl, e.getMessage());
 //                    e.printStackTrace();
                 }
             }
         }
         log.info("Total {} classes.", results.size());
+        Metrics.counter("class.loaded").add(results.size());
         return results;
     }
 
     public List<String> getTargetClasses(String filepath, Map<String, List<String>> moduleClasses){
+        if(VirtualClasspath.isVirtual(filepath)){
+            return VirtualClasspath.getClassesUnder(filepath);
+        }
         List<String> classes = null;
         Path path = Paths.get(filepath);
         if(Files.notExists(path)) return null;
@@ -129,12 +168,41 @@ public class ClassInfoScanner {
         log.info("Build {}/{} classes.", counter, total);
     }
 
+    /**
+     * 多线程提取关联信息
+     * 类名排序后按顺序切分，每个类只会落在一个分片中，结果与单线程一致
+     * @param classes 待处理的类
+     */
+    public void buildClassEdgesInParallel(List<String> classes){
+        int total = classes.size();
+        log.info("Build {} classes' edges in parallel.", total);
+        List<String> sorted = new ArrayList<>(classes);
+        Collections.sort(sorted);
+        int partitions = Math.max(1, Math.min(AsyncConfiguration.CORE_POOL_SIZE * 4, total / MIN_PARTITION_SIZE));
+        int size = (total + partitions - 1) / partitions;
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for(int start = 0; start < total; start += size){
+            List<String> partition = sorted.subList(start, Math.min(start + size, total));
+            futures.add(edgeCollector.collect(partition));
+        }
+        int counter = 0;
+        for(CompletableFuture<Integer> future:futures){
+            try {
+                counter += future.get();
+                log.info("Build {}/{} classes.", counter, total);
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                // 异步获取出错
+            }
+        }
+    }
+
     public static void extractRelationships(ClassReference clsRef, DataContainer dataContainer, int depth){
         // 建立继承关系
         if(clsRef.isHasSuperClass()){
             ClassReference superClsRef = dataContainer.getClassRefByName(clsRef.getSuperClass());
             if(superClsRef == null && depth < 10){ // 正常情况不会进入这个阶段
-                superClsRef = collect0(clsRef.getSuperClass(), null, dataContainer, depth+1);
+                superClsRef = collectIfAbsent(clsRef.getSuperClass(), null, dataContainer, depth+1);
             }
             if(superClsRef != null && !"java.lang.Object".equals(superClsRef.getName())){
                 Extend extend =  Extend.newInstance(clsRef, superClsRef);
@@ -149,7 +217,7 @@ public class ClassInfoScanner {
             for(String inface:infaces){
                 ClassReference infaceClsRef = dataContainer.getClassRefByName(inface);
                 if(infaceClsRef == null && depth < 10){// 正常情况不会进入这个阶段
-                    infaceClsRef = collect0(inface, null, dataContainer, depth+1);
+                    infaceClsRef = collectIfAbsent(inface, null, dataContainer, depth+1);
                 }
                 if(infaceClsRef != null){
                     Interfaces interfaces = Interfaces.newInstance(clsRef, infaceClsRef);
@@ -162,6 +230,23 @@ public class ClassInfoScanner {
         makeAliasRelations(clsRef, dataContainer);
     }
 
+    /**
+     * 线程安全的collect0
+     * 持锁后再查一遍，已经被其他线程收集过的类直接返回
+     * @param classname 待收集的类名
+     * @return 具体的类信息
+     */
+    public static ClassReference collectIfAbsent(String classname, SootClass cls,
+                                                 DataContainer dataContainer, int depth){
+        synchronized (COLLECT_LOCK){
+            ClassReference classRef = dataContainer.getClassRefByName(classname);
+            if(classRef == null){
+                classRef = collect0(classname, cls, dataContainer, depth);
+            }
+            return classRef;
+        }
+    }
+
     /**
      * 根据单个类进行类信息收集
      * @param classname 待收集的类名
@@ -8,6 +8,7 @@ import soot.jimple.*;
 import soot.jimple.internal.JimpleLocal;
 import tabby.core.container.DataContainer;
 import tabby.core.container.RulesContainer;
+import tabby.core.data.AccessPath;
 import tabby.core.data.TabbyVariable;
 import tabby.core.toolkit.PollutedVarsPointsToAnalysis;
 import tabby.dal.caching.bean.edge.Call;
@@ -32,7 +33,7 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
 
     private Value baseValue;
     private boolean isPolluted = false;
-    private List<Integer> pollutedPosition;
+    private int[] pollutedPosition;
     private Map<Value, TabbyVariable> globalMap = new HashMap<>();
     private Map<Local, TabbyVariable> localMap = new HashMap<>();
 
@@ -81,7 +82,7 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
         if(target.isSink()){
             // 调用sink函数时，需要符合sink函数的可控点，如果均为可控点，则当前调用是可控的
             for(int i:target.getPollutedPosition()){
-                if(pollutedPosition.size() > i+1 && pollutedPosition.get(i+1) == PositionHelper.NOT_POLLUTED_POSITION){
+                if(pollutedPosition.length > i+1 && pollutedPosition[i+1] == PositionHelper.NOT_POLLUTED_POSITION){
                     isPolluted = false;
                     break;
                 }
@@ -104,11 +105,10 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
             Call call = Call.newInstance(source, target);
             call.setRealCallType(classname);
             call.setInvokerType(invokerType);
-            call.setPollutedPosition(new ArrayList<>(pollutedPosition));
+            call.setPollutedPosition(pollutedPosition);
             call.setUnit(unit);
             call.setLineNum(unit.getJavaSourceStartLineNumber());
-            if(!source.getCallEdge().contains(call)){
-                source.getCallEdge().add(call);
+            if(source.getCallEdge().add(call)){
                 dataContainer.store(call);
             }
 
@@ -135,7 +135,7 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
 
     public void generate(InvokeExpr ie){
         if(pta == null) return; // 当前不支持指针分析
-        pollutedPosition = new LinkedList<>();
+        pollutedPosition = new int[0];
         Map<Local, TabbyVariable> localMap = pta.getFlowBefore(unit);
 
         if(baseValue != null){
@@ -152,13 +152,14 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
                 }
             }
         }
-        pollutedPosition.add(check(baseValue, localMap));
+        pollutedPosition = new int[ie.getArgCount() + 1];
+        pollutedPosition[0] = check(baseValue, localMap);
 
         for(int i=0; i<ie.getArgCount(); i++){
-            pollutedPosition.add(check(ie.getArg(i), localMap));
+            pollutedPosition[i+1] = check(ie.getArg(i), localMap);
         }
 
-        for(Integer i:pollutedPosition){
+        for(int i:pollutedPosition){
             if (i != PositionHelper.NOT_POLLUTED_POSITION) {
                 isPolluted = true;
                 break;
@@ -196,14 +197,14 @@ public class InvokeExprSwitcher extends AbstractJimpleValueSwitch {
             }
         }
         if(var != null){
-            String related = null;
+            AccessPath related = null;
             if(var.isPolluted(PositionHelper.THIS)){ // var本身是pollted的情况
                 related = var.getValue().getRelatedType();
             }else if(var.containsPollutedVar(new ArrayList<>())){ // 当前var的类属性，element元素是polluted的情况
                 related = var.getFirstPollutedVarRelatedType();
             }
             if(related != null){
-                return PositionHelper.getPosition(related);
+                return related.getPosition();
             }
         }
         return PositionHelper.NOT_POLLUTED_POSITION;
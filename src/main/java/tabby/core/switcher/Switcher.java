@@ -1,26 +1,28 @@
 package tabby.core.switcher;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import soot.*;
 import soot.jimple.*;
 import soot.jimple.internal.JimpleLocalBox;
 import soot.toolkits.graph.BriefUnitGraph;
 import soot.toolkits.graph.UnitGraph;
-import tabby.config.GlobalConfiguration;
 import tabby.core.container.DataContainer;
+import tabby.core.data.AccessPath;
+import tabby.core.data.ActionSummary;
+import tabby.core.data.AnalysisBudget;
 import tabby.core.data.Context;
 import tabby.core.data.TabbyVariable;
+import tabby.core.toolkit.BodyRetriever;
 import tabby.core.toolkit.PollutedVarsPointsToAnalysis;
 import tabby.dal.caching.bean.edge.Call;
 import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.util.Metrics;
 import tabby.util.PositionHelper;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * switcher的公共函数
@@ -30,6 +32,16 @@ import java.util.concurrent.*;
 @Slf4j
 public class Switcher {
 
+    /**
+     * 正在分析中的函数id，并行分析时同一个函数只由一个线程分析
+     */
+    private static final Map<Long, Analysing> ANALYSING = new ConcurrentHashMap<>();
+    /**
+     * 线程 -> 正在等待其他线程分析完成的函数id，用于检测线程之间的循环等待
+     */
+    private static final Map<Thread, Long> WAITING = new ConcurrentHashMap<>();
+    private static final Object WAIT_LOCK = new Object();
+
     /**
      * 当前函数可能有两种情况
      * 1. 直接分析一个函数，入参、baseVar 无上下文关联
@@ -56,24 +68,98 @@ public class Switcher {
                 return null;
             }
 
-            JimpleBody body = (JimpleBody) retrieveBody(method, methodRef.getSignature());
-            if(body == null) return null;
+            AnalysisBudget budget = context.getBudget();
+            if(budget.getReason() != null){
+                // 预算已经用完，保持未初始化，由之后的调用者或顶层分析重新分析
+                return null;
+            }
+
+            // 当前线程正在分析该函数时为递归调用，直接使用当前已有的actions
+            // 其他线程正在分析该函数时，等待其分析完成，保证结果与串行分析一致；出现循环等待时才使用已有的actions
+            Analysing current = new Analysing();
+            while(true){
+                Analysing other = ANALYSING.putIfAbsent(methodRef.getId(), current);
+                if(other == null) break;
+                if(other.owner == current.owner) return null; // 递归调用
+                if(!await(methodRef.getId(), other)) return null; // 循环等待
+                if(methodRef.isActionInitialed() && methodRef.isInitialed()) return null;
+                // 其他线程没有完成分析，比如获取不到body，由当前线程重新尝试
+            }
+            try{
+                if(methodRef.isActionInitialed() && methodRef.isInitialed()){
+                    return null;
+                }
+
+                JimpleBody body = (JimpleBody) BodyRetriever.retrieve(method, methodRef.getSignature());
+                if(body == null) return null;
 
-            UnitGraph graph = new BriefUnitGraph(body);
-            PollutedVarsPointsToAnalysis pta =
-                    PollutedVarsPointsToAnalysis
-                            .makeDefault(methodRef, body, graph,
-                            dataContainer, context, !methodRef.isActionInitialed());
+                AnalysisBudget.Mark mark = budget.mark();
+                UnitGraph graph = new BriefUnitGraph(body);
+                PollutedVarsPointsToAnalysis pta =
+                        PollutedVarsPointsToAnalysis
+                                .makeDefault(methodRef, body, graph,
+                                dataContainer, context, !methodRef.isActionInitialed());
 
-            methodRef.setInitialed(true);
-            methodRef.setActionInitialed(true);
-            return pta;
+                if(budget.getUnitsSince(mark) == 0){
+                    // 开始分析时预算刚好用完，一条语句都没有处理，不能作为空actions标记为已分析
+                    return null;
+                }
+                // 只记录当前函数分析过程中超出预算的原因
+                String reason = budget.getReasonSince(mark);
+                if(reason != null){
+                    // 分析不完整，标记原因，其他函数的分析不受影响
+                    methodRef.setBudgetExceededReason(reason);
+                    Metrics.counter("method.budgetExceeded." + reason).increment();
+                    log.debug("Method {} exceeded budget: {}", methodRef.getSignature(), reason);
+                }
+                methodRef.setInitialed(true);
+                methodRef.setActionInitialed(true);
+                return pta;
+            }finally {
+                ANALYSING.remove(methodRef.getId());
+                current.done.complete(null);
+            }
         }catch (RuntimeException e){
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * 等待其他线程分析完成
+     * 沿等待链查找，如果链上的线程最终在等待当前线程，则存在循环等待，不再等待
+     * @return false 表示存在循环等待或被中断
+     */
+    private static boolean await(long id, Analysing other){
+        Thread self = Thread.currentThread();
+        synchronized (WAIT_LOCK){
+            Thread owner = other.owner;
+            for(int i = 0; owner != null && i <= WAITING.size(); i++){
+                if(owner == self) return false;
+                Long waitFor = WAITING.get(owner);
+                Analysing next = waitFor == null ? null : ANALYSING.get(waitFor);
+                owner = next == null ? null : next.owner;
+            }
+            WAITING.put(self, id);
+        }
+        try{
+            other.done.get();
+            return true;
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }catch (ExecutionException e){
+            return true;
+        }finally {
+            WAITING.remove(self);
+        }
+    }
+
+    private static class Analysing {
+        private final Thread owner = Thread.currentThread();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
 
 
     public static TabbyVariable doInvokeExprAnalysis(
@@ -85,11 +171,11 @@ public class Switcher {
         TabbyVariable baseVar = Switcher.extractBaseVarFromInvokeExpr(invokeExpr, context); // 调用对象
         Map<Integer, TabbyVariable> args = Switcher.extractArgsFromInvokeExpr(invokeExpr, context);
         // 检查当前的调用 是否需要分析 看入参、baseVar是否可控
-        List<Integer> pollutedPosition = pollutedPositionAnalysis(baseVar, args, context);
+        int[] pollutedPosition = pollutedPositionAnalysis(baseVar, args, context);
         TabbyVariable firstPollutedVar = null;
         boolean flag = false;
         int index = 0;
-        for(Integer pos:pollutedPosition){
+        for(int pos:pollutedPosition){
             if(pos != PositionHelper.NOT_POLLUTED_POSITION){
                 if(index == 0){
                     firstPollutedVar = baseVar;
@@ -125,7 +211,9 @@ public class Switcher {
 
         // try to analysis this method
         if((!methodRef.isInitialed() || !methodRef.isActionInitialed()) // never analysis with pta
-                && !context.isInRecursion(methodRef.getSignature())){ // not recursion
+                && !context.isInRecursion(methodRef.getSignature()) // not recursion
+                && context.getBudget().getReason() == null // budget not used up
+                && context.getBudget().allowDepth(context.getDepth() + 1)){ // not too deep
             //  分析interfaceInvoke时，
             //   由于获取到的method是没有函数内容的，所以需要找到对应的具体实现来进行分析
             //   这里继续进行简化，对于无返回的函数调用，可以仍然保持原状，也就是舍弃了函数参数在函数体内可能发生的变化
@@ -152,29 +240,21 @@ public class Switcher {
         }
         // 参数修正，将从子函数的分析结果套用到当前的localMap
         // 修正 入参和baseVar
-        for (Map.Entry<String, String> entry : methodRef.getActions().entrySet()) {
-            String position = entry.getKey();
-            String newRelated = entry.getValue();
-            if("return".equals(position))continue; // return的修正 不进行处理，由assign的时候自己去处理
-            TabbyVariable oldVar = parsePosition(position, baseVar, args, true);
-            TabbyVariable newVar = null;
-
+        ActionSummary summary = dataContainer.getActionSummary(methodRef);
+        for (ActionSummary.Transfer transfer : summary.getTransfers()) {
+            TabbyVariable oldVar = parsePosition(transfer.getTarget(), baseVar, args, true);
             if (oldVar != null) {
-                if ("clear".equals(newRelated)) {
+                if (transfer.isClear()) {
                     oldVar.clearVariableStatus();
                 } else {
-                    boolean remain = false;
-                    if(newRelated != null && newRelated.contains("&remain")){
-                        remain = true;
-                    }
-                    newVar = parsePosition(newRelated, baseVar, args, false);
-                    oldVar.assign(newVar, remain);
+                    TabbyVariable newVar = parsePosition(transfer.getSource(), baseVar, args, false);
+                    oldVar.assign(newVar, transfer.isRemain());
                 }
             }
         }
 
-        if(methodRef.getActions().containsKey("return")){
-            retVar = parsePosition(methodRef.getActions().get("return"), baseVar, args, true);
+        if(summary.hasReturn()){ // return的修正 不在这里处理，由assign的时候自己去处理
+            retVar = parsePosition(summary.getReturnPath(), baseVar, args, true);
         }
         boolean optimize = false;
         // TODO 接口类型 传递优化
@@ -200,16 +280,17 @@ public class Switcher {
         return retVar;
     }
 
-    public static List<Integer> pollutedPositionAnalysis(TabbyVariable baseVar,
-                                                         Map<Integer, TabbyVariable> args,
-                                                         Context context){
-        List<Integer> positions = new ArrayList<>();
+    public static int[] pollutedPositionAnalysis(TabbyVariable baseVar,
+                                                 Map<Integer, TabbyVariable> args,
+                                                 Context context){
+        int[] positions = new int[args.size() + 1];
         // baseVar
-        positions.add(getPollutedPosition(baseVar));
+        positions[0] = getPollutedPosition(baseVar);
 
         // args
+        int index = 1;
         for(TabbyVariable var: args.values()){
-            positions.add(getPollutedPosition(var));
+            positions[index++] = getPollutedPosition(var);
         }
 
         return positions;
@@ -217,14 +298,14 @@ public class Switcher {
 
     public static int getPollutedPosition(TabbyVariable var){
         if(var != null){
-            String related = null;
+            AccessPath related = null;
             if(var.isPolluted(-1)){ // var本身是pollted的情况
                 related = var.getValue().getRelatedType();
             }else if(var.containsPollutedVar(new ArrayList<>())){ // 当前var的类属性，element元素是polluted的情况
                 related = var.getFirstPollutedVarRelatedType();
             }
             if(related != null){
-                return PositionHelper.getPosition(related);
+                return related.getPosition();
             }
         }
         return PositionHelper.NOT_POLLUTED_POSITION;
@@ -232,7 +313,7 @@ public class Switcher {
 
     public static void buildCallRelationship(String classname, Context context, boolean isOptimize,
                                       MethodReference targetMethodRef, DataContainer dataContainer,
-                                      Unit unit, String invokeType, List<Integer> pollutedPosition){
+                                      Unit unit, String invokeType, int[] pollutedPosition){
         MethodReference sourceMethodRef = context.getMethodReference();
         if(sourceMethodRef == null || targetMethodRef == null){
             // 两个函数对象均不能为空
@@ -242,7 +323,7 @@ public class Switcher {
         if(targetMethodRef.isSink()){
             // 调用sink函数时，需要符合sink函数的可控点，如果均为可控点，则当前调用是可控的
             for(int i:targetMethodRef.getPollutedPosition()){
-                if(pollutedPosition.size() > i+1 && pollutedPosition.get(i+1) == PositionHelper.NOT_POLLUTED_POSITION){
+                if(pollutedPosition.length > i+1 && pollutedPosition[i+1] == PositionHelper.NOT_POLLUTED_POSITION){
                     isPolluted = false;
                     break;
                 }
@@ -264,11 +345,10 @@ public class Switcher {
             Call call = Call.newInstance(sourceMethodRef, targetMethodRef);
             call.setRealCallType(classname);
             call.setInvokerType(invokeType);
-            call.setPollutedPosition(new ArrayList<>(pollutedPosition));
+            call.setPollutedPosition(pollutedPosition);
             call.setUnit(unit);
             call.setLineNum(unit.getJavaSourceStartLineNumber());
-            if(!sourceMethodRef.getCallEdge().contains(call)){
-                sourceMethodRef.getCallEdge().add(call);
+            if(sourceMethodRef.getCallEdge().add(call)){
                 dataContainer.store(call);
             }
 
@@ -304,68 +384,50 @@ public class Switcher {
                                               TabbyVariable baseVar,
                                               Map<Integer, TabbyVariable> args,
                                               boolean created){
-        if(position == null) return null;
-        TabbyVariable retVar = null;
-        String[] positions = position.split("\\|");
-        for(String pos:positions){
-            if(pos.contains("&remain")){ // 通常为 xxx&remain 表示 处理时需要保留原有的污点状态
-                pos = pos.split("&")[0];
+        // 通常为 xxx&remain 表示 处理时需要保留原有的污点状态，解析时剔除
+        return parsePosition(AccessPath.parse(position), baseVar, args, created);
+    }
+
+    public static TabbyVariable parsePosition(AccessPath path,
+                                              TabbyVariable baseVar,
+                                              Map<Integer, TabbyVariable> args,
+                                              boolean created){
+        if(path == null) return null;
+        if(path.isRoot()){
+            int position = path.getPosition();
+            if(position == PositionHelper.THIS){ // this
+                return baseVar;
+            }else if(position >= 0){ // param-0
+                return args.get(position);
             }
-            if("this".equals(pos)){ // this
-                retVar = baseVar;
-            }else if(pos.startsWith("param-")){ // param-0
-                int index = Integer.valueOf(pos.split("-")[1]);
-                retVar = args.get(index);
-
-            }else if(retVar != null && StringUtils.isNumeric(pos)){ // 后续找element 类似this|0
-                int index = Integer.valueOf(pos);
-                TabbyVariable tempVar = retVar.getElement(index);
-                if(created && tempVar == null){
-                    tempVar = TabbyVariable.makeRandomInstance();
-                    boolean isPolluted = retVar.isPolluted(-1);
-                    tempVar.getValue().setPolluted(isPolluted);
-                    if(isPolluted){
-                        tempVar.getValue().setRelatedType(retVar.getValue().getRelatedType()+"|"+index);
-                    }
-                    retVar.addElement(index, tempVar);
+            return null; // 所有情况都不符合时，置为null
+        }
+
+        TabbyVariable retVar = parsePosition(path.getParent(), baseVar, args, created);
+        if(retVar == null) return null;
+        String pos = path.getSegment();
+        int index = path.getIndex();
+        if(index >= 0){ // 后续找element 类似this|0
+            TabbyVariable tempVar = retVar.getElement(index);
+            if(created && tempVar == null){
+                tempVar = TabbyVariable.makeRandomInstance();
+                boolean isPolluted = retVar.isPolluted(-1);
+                tempVar.getValue().setPolluted(isPolluted);
+                if(isPolluted){
+                    tempVar.getValue().setRelatedType(AccessPath.append(retVar.getValue().getRelatedType(), index));
                 }
-                retVar = tempVar;
-            }else if(retVar != null){ // 类似 this|name
-                TabbyVariable tempVar = retVar.getField(pos);
-                if(created && tempVar == null){
-                    SootField field = retVar.getSootField(pos);
-                    if(field != null){
-                        tempVar = retVar.getOrAddField(retVar, field);
-                    }
+                retVar.addElement(index, tempVar);
+            }
+            return tempVar;
+        }else{ // 类似 this|name
+            TabbyVariable tempVar = retVar.getField(pos);
+            if(created && tempVar == null){
+                SootField field = retVar.getSootField(pos);
+                if(field != null){
+                    tempVar = retVar.getOrAddField(retVar, field);
                 }
-                retVar = tempVar;
-            }else{
-                retVar = null; // 所有情况都不符合时，置为null
             }
+            return tempVar;
         }
-        return retVar;
-    }
-
-    public static Body retrieveBody(SootMethod method, String signature){
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<JimpleBody> future = executor.submit(() -> (JimpleBody) method.retrieveActiveBody());
-
-        JimpleBody body = null;
-        try{
-            // 为了解决soot获取body不停止的问题，添加线程且最多执行2分钟
-            // 超过2分钟可以获取到的body，也可以间接认为是非常大的body，暂不分析
-            // 这里两分钟改成配置文件timeout-1，最短1分钟
-            body = future.get( Integer.max(GlobalConfiguration.TIMEOUT-1, 1) * 60L, TimeUnit.SECONDS);
-        }catch (TimeoutException e){
-            log.error("Method Fetch Timeout "+signature);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            executor.shutdown();
-        }
-
-        return body;
     }
 }
@@ -9,6 +9,7 @@ import soot.Unit;
 import soot.Value;
 import soot.jimple.*;
 import tabby.config.GlobalConfiguration;
+import tabby.core.data.AccessPath;
 import tabby.core.data.TabbyVariable;
 import tabby.core.switcher.Switcher;
 
@@ -106,7 +107,7 @@ public class SimpleStmtSwitcher extends StmtSwitcher {
         var = (TabbyVariable) rightValueSwitcher.getResult();
         context.setReturnVar(var);
         if(var != null && var.isPolluted(-1) && reset){
-            methodRef.addAction("return", var.getValue().getRelatedType());
+            methodRef.addAction("return", AccessPath.toString(var.getValue().getRelatedType()));
         }
     }
 
@@ -10,6 +10,7 @@ import soot.jimple.ArrayRef;
 import soot.jimple.InstanceFieldRef;
 import soot.jimple.IntConstant;
 import soot.jimple.StaticFieldRef;
+import tabby.core.data.AccessPath;
 import tabby.core.data.TabbyVariable;
 
 /**
@@ -96,27 +97,18 @@ public class SimpleLeftValueSwitcher extends ValueSwitcher {
 
     public void generateAction(TabbyVariable lvar, TabbyVariable rvar, int index, boolean unbind){
         if(!reset) return; // 不记录 actions
-        if(unbind && lvar.isPolluted(-1)){
-            if(index != -1){
-                methodRef.addAction(lvar.getValue().getRelatedType() + "|"+index, "clear");
-            }else{
-                methodRef.addAction(lvar.getValue().getRelatedType(), "clear");
-            }
-        }else if(lvar.isPolluted(-1)){
-            if(rvar != null && rvar.isPolluted(-1)){
-                if(index != -1){
-                    methodRef.addAction(lvar.getValue().getRelatedType() + "|"+index, rvar.getValue().getRelatedType());
-                }else if(!lvar.getValue().getRelatedType().equals(rvar.getValue().getRelatedType())){
-                    methodRef.addAction(lvar.getValue().getRelatedType(), rvar.getValue().getRelatedType());
-                }
-
-            }else{
-                if(index != -1){
-                    methodRef.addAction(lvar.getValue().getRelatedType() + "|"+index, "clear");
-                }else{
-                    methodRef.addAction(lvar.getValue().getRelatedType(), "clear");
-                }
+        if(!lvar.isPolluted(-1)) return;
+        AccessPath lpath = lvar.getValue().getRelatedType();
+        if(index != -1){
+            lpath = AccessPath.append(lpath, index);
+        }
+        if(!unbind && rvar != null && rvar.isPolluted(-1)){
+            AccessPath rpath = rvar.getValue().getRelatedType();
+            if(index != -1 || lpath != rpath){
+                methodRef.addAction(AccessPath.toString(lpath), AccessPath.toString(rpath));
             }
+        }else{
+            methodRef.addAction(AccessPath.toString(lpath), "clear");
         }
     }
 
@@ -0,0 +1,152 @@
+package tabby.core.toolkit;
+
+import lombok.extern.slf4j.Slf4j;
+import soot.Body;
+import soot.SootMethod;
+import tabby.config.AsyncConfiguration;
+import tabby.config.GlobalConfiguration;
+import tabby.util.Metrics;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 获取函数body的公共线程池
+ * 为了解决soot获取body不停止的问题，body的获取放在独立线程中执行，并限制最大执行时间
+ * 线程池在整个分析过程中复用，避免每个函数都新建一个线程
+ * @author wh1t3p1g
+ * @since 2023/2/9
+ */
+@Slf4j
+public class BodyRetriever {
+
+    private static final Metrics.Counter RETRIEVED = Metrics.counter("body.retrieved");
+    private static final Metrics.Counter TIMEOUT = Metrics.counter("body.timeout");
+    private static final Metrics.Counter ERROR = Metrics.counter("body.error");
+    private static final Metrics.Counter REJECTED = Metrics.counter("body.rejected");
+
+    private static volatile ThreadPoolExecutor executor;
+    /**
+     * 空闲位置，提交前获取，任务在线程中执行结束后释放
+     * 超时后无法被中断的任务会一直占用位置，不会因此堆积到队列中
+     */
+    private static Semaphore slots;
+
+    /**
+     * 获取函数body
+     * 没有空闲位置时等待，等待时间计入超时；超时的任务会被取消，并返回null
+     * @param method 目标函数
+     * @param signature 函数签名，用于日志输出
+     * @return body 或者 null
+     */
+    public static Body retrieve(SootMethod method, String signature){
+        long start = System.nanoTime();
+        // 超过timeout-1分钟才获取到的body，也可以间接认为是非常大的body，暂不分析
+        // 最短1分钟
+        long deadline = start + TimeUnit.MINUTES.toNanos(Integer.max(GlobalConfiguration.TIMEOUT-1, 1));
+        ThreadPoolExecutor pool = getExecutor();
+        Retrieval retrieval = null;
+        Body body = null;
+        try{
+            if(!slots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)){
+                REJECTED.increment();
+                log.error("Method Fetch Rejected, no body thread became free in time "+signature);
+                return null;
+            }
+            retrieval = new Retrieval(method);
+            pool.execute(retrieval);
+            body = retrieval.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            RETRIEVED.increment();
+        }catch (TimeoutException e){
+            retrieval.cancel(true);
+            TIMEOUT.increment();
+            log.error("Method Fetch Timeout "+signature);
+        } catch (ExecutionException e) {
+            ERROR.increment();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            if(retrieval != null){
+                retrieval.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }finally {
+            // 包括超时的情况
+            Metrics.timer("body.retrieve").record(System.nanoTime() - start);
+        }
+
+        return body;
+    }
+
+    private static ThreadPoolExecutor getExecutor(){
+        if(executor == null){
+            synchronized (BodyRetriever.class){
+                if(executor == null){
+                    int size = Math.max(1, (int) (AsyncConfiguration.CORE_POOL_SIZE / 0.6) + 1) * 2;
+                    slots = new Semaphore(size);
+                    executor = makeExecutor(size);
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 每个分析线程同一时间最多等待一个body，所以线程数与 tabby-collector 的最大线程数保持一致
+     * 超时后无法被中断的线程会继续占用一个位置，这里预留一倍的线程数
+     * 提交的任务数由 slots 限制为线程数，队列不会拒绝任务，也不会堆积
+     */
+    private static ThreadPoolExecutor makeExecutor(int size){
+        AtomicInteger counter = new AtomicInteger(0);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "tabby-body-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        log.info("Open {} size for thread pool tabby-body", size);
+        return pool;
+    }
+
+    /**
+     * 在线程中执行结束后才释放位置
+     * 在队列中就被取消的任务，线程取出后 run 直接返回，同样释放位置
+     */
+    private static final class Retrieval extends FutureTask<Body> {
+
+        private Retrieval(SootMethod method){
+            super(method::retrieveActiveBody);
+        }
+
+        @Override
+        public void run(){
+            try{
+                super.run();
+            }finally {
+                slots.release();
+            }
+        }
+    }
+
+    public static long getRetrievedCount(){
+        return RETRIEVED.get();
+    }
+
+    public static long getTimeoutCount(){
+        return TIMEOUT.get();
+    }
+
+    public static long getRejectedCount(){
+        return REJECTED.get();
+    }
+
+    public static long getErrorCount(){
+        return ERROR.get();
+    }
+
+    public static void report(){
+        log.info("Method bodies retrieved: {}, timeout: {}, rejected: {}, error: {}",
+                RETRIEVED.get(), TIMEOUT.get(), REJECTED.get(), ERROR.get());
+    }
+}
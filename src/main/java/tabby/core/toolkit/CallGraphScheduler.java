@@ -0,0 +1,175 @@
+package tabby.core.toolkit;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import soot.Body;
+import soot.Modifier;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import tabby.core.container.DataContainer;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 自底向上的函数分析调度
+ * 分析前先根据函数体中的调用语句，构建分析目标之间的调用图，并计算强连通分量（SCC）
+ * 被调用函数所在的SCC先于调用者分析，调用者分析时直接使用被调用函数的actions，不再需要按需递归分析
+ * SCC按层级分组，同一层级的SCC之间不存在调用关系，可以并行分析
+ * @author wh1t3p1g
+ * @since 2023/2/15
+ */
+@Slf4j
+public class CallGraphScheduler {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * @param targets 待分析的函数
+     * @param dataContainer 用于解析调用语句实际指向的函数，与分析时一致
+     * @return 按层级排列的SCC，第0层不调用其他分析目标
+     */
+    public static List<List<Component>> schedule(Collection<MethodReference> targets, DataContainer dataContainer){
+        List<MethodReference> nodes = new ArrayList<>(targets);
+        Map<String, Integer> indexes = new HashMap<>();
+        for(int i = 0; i < nodes.size(); i++){
+            indexes.putIfAbsent(nodes.get(i).getSignature(), i);
+        }
+
+        // 获取body是最耗时的部分，并行处理；body会被soot保留，后续分析时不再重复获取
+        Map<Integer, int[]> callees = new ConcurrentHashMap<>();
+        new ArrayList<>(indexes.values()).parallelStream()
+                .forEach(i -> callees.put(i, getCallees(nodes.get(i), indexes, dataContainer)));
+
+        int[][] graph = new int[nodes.size()][];
+        for(int i = 0; i < nodes.size(); i++){
+            graph[i] = callees.getOrDefault(i, EMPTY);
+        }
+
+        List<List<Component>> levels = new ArrayList<>();
+        for(Component component:tarjan(graph, nodes)){
+            while(levels.size() <= component.level){
+                levels.add(new ArrayList<>());
+            }
+            levels.get(component.level).add(component);
+        }
+        return levels;
+    }
+
+    /**
+     * 提取函数体中调用的、同样是分析目标的函数
+     * 调用的函数与 Switcher 中一样通过 DataContainer 解析，当前类没有重载时指向父类、接口中的函数
+     * 不会被分析的函数不需要获取body
+     */
+    private static int[] getCallees(MethodReference ref, Map<String, Integer> indexes, DataContainer dataContainer){
+        if(ref.isSink() || ref.isIgnore() || (ref.isInitialed() && ref.isActionInitialed())) return EMPTY;
+        try{
+            SootMethod method = ref.getMethod();
+            if(method == null || !method.isConcrete() || method.isPhantom()
+                    || Modifier.isNative(method.getModifiers())
+                    || (method.isStatic() && method.getParameterCount() == 0)) return EMPTY;
+
+            Body body = BodyRetriever.retrieve(method, ref.getSignature());
+            if(body == null) return EMPTY;
+
+            Set<Integer> targets = new LinkedHashSet<>();
+            for(Unit unit:body.getUnits()){
+                Stmt stmt = (Stmt) unit;
+                if(!stmt.containsInvokeExpr()) continue;
+                MethodReference callee = dataContainer.getMethodRefBySignature(stmt.getInvokeExpr().getMethodRef());
+                if(callee == null) continue;
+                Integer index = indexes.get(callee.getSignature());
+                if(index != null){
+                    targets.add(index);
+                }
+            }
+            return targets.stream().mapToInt(Integer::intValue).toArray();
+        }catch (Exception e){
+            log.debug("Extract callees of {} error: {}", ref.getSignature(), e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * 非递归的tarjan算法，SCC的产出顺序为逆拓扑序，即被调用者先于调用者
+     */
+    private static List<Component> tarjan(int[][] graph, List<MethodReference> nodes){
+        int size = graph.length;
+        int[] index = new int[size];
+        int[] low = new int[size];
+        int[] owner = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<int[]> frames = new ArrayDeque<>();
+        List<Component> components = new ArrayList<>();
+        int counter = 0;
+
+        for(int root = 0; root < size; root++){
+            if(index[root] != -1) continue;
+            index[root] = low[root] = counter++;
+            stack.push(root);
+            onStack[root] = true;
+            frames.push(new int[]{root, 0});
+
+            while(!frames.isEmpty()){
+                int[] frame = frames.peek();
+                int node = frame[0];
+                if(frame[1] < graph[node].length){
+                    int next = graph[node][frame[1]++];
+                    if(index[next] == -1){
+                        index[next] = low[next] = counter++;
+                        stack.push(next);
+                        onStack[next] = true;
+                        frames.push(new int[]{next, 0});
+                    }else if(onStack[next]){
+                        low[node] = Math.min(low[node], index[next]);
+                    }
+                    continue;
+                }
+
+                frames.pop();
+                if(!frames.isEmpty()){
+                    int parent = frames.peek()[0];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+                if(low[node] != index[node]) continue;
+
+                Component component = new Component();
+                List<Integer> members = new ArrayList<>();
+                int member;
+                do{
+                    member = stack.pop();
+                    onStack[member] = false;
+                    owner[member] = components.size();
+                    members.add(member);
+                    component.methods.add(nodes.get(member));
+                }while(member != node);
+                // 被调用者所在的SCC已经产出，层级已经确定
+                for(int from:members){
+                    for(int to:graph[from]){
+                        if(owner[to] == components.size()){
+                            component.recursive = true;
+                        }else{
+                            component.level = Math.max(component.level, components.get(owner[to]).level + 1);
+                        }
+                    }
+                }
+                components.add(component);
+            }
+        }
+        return components;
+    }
+
+    /**
+     * 一个强连通分量，size大于1或者存在自身递归调用时，需要迭代分析至不动点
+     */
+    @Getter
+    public static class Component {
+        private final List<MethodReference> methods = new ArrayList<>();
+        private boolean recursive = false;
+        private int level = 0;
+    }
+}
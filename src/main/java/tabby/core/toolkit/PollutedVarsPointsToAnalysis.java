@@ -7,7 +7,6 @@ import soot.jimple.ArrayRef;
 import soot.jimple.InstanceFieldRef;
 import soot.toolkits.graph.DirectedGraph;
 import soot.toolkits.scalar.ForwardFlowAnalysis;
-import tabby.config.GlobalConfiguration;
 import tabby.dal.caching.bean.ref.MethodReference;
 import tabby.core.data.Context;
 import tabby.core.container.DataContainer;
@@ -108,12 +107,11 @@ public class PollutedVarsPointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<
 
     @Override
     protected void flowThrough(Map<Local, TabbyVariable> in, Unit d, Map<Local, TabbyVariable> out) {
-        if(GlobalConfiguration.isNeedStop){
+        if(!context.getBudget().consume()){ // 超出预算，剩余的语句不再处理
             return;
         }
-        Map<Local, TabbyVariable> newIn = new HashMap<>();
-        copy(in, newIn);
-        context.setLocalMap(newIn);
+        // 不再整体deepClone in集合，变量在被当前语句访问时才拷贝，见 Context.getOrAdd
+        context.shareLocalMap(in);
         context.setInitialMap(initialMap);
         stmtSwitcher.setContext(context);
         stmtSwitcher.setDataContainer(dataContainer);
@@ -138,7 +136,11 @@ public class PollutedVarsPointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<
 
         in2.forEach((local, in2Var) -> {// 取并集
             TabbyVariable outVar = out.get(local);
+            if(outVar == in2Var) return; // 两个分支都未修改过的变量，实例相同，不需要合并
             if(outVar != null){
+                // outVar 与 in1 共享实例，union 会修改状态，需要先拷贝
+                outVar = outVar.deepClone(new ArrayList<>());
+                out.put(local, outVar);
                 outVar.union(in2Var);
             }else{
                 out.put(local, in2Var);
@@ -146,14 +148,14 @@ public class PollutedVarsPointsToAnalysis extends ForwardFlowAnalysis<Unit, Map<
         });
     }
 
+    /**
+     * 流集合之间共享变量实例，写时拷贝
+     * 所有对变量的修改都经过 Context.getOrAdd 或 merge，二者在修改前都会先拷贝共享的变量
+     */
     @Override
     protected void copy(Map<Local, TabbyVariable> source, Map<Local, TabbyVariable> dest) {
         dest.clear();
-        for (Map.Entry<Local, TabbyVariable> entry : source.entrySet()) {
-            Local value = entry.getKey();
-            TabbyVariable variable = entry.getValue();
-            dest.put(value, variable.deepClone(new ArrayList<>()));
-        }
+        dest.putAll(source);
     }
 
     public Map<Local, TabbyVariable> clean(Map<Local, TabbyVariable> localMap){
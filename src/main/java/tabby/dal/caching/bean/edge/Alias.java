@@ -3,13 +3,13 @@ package tabby.dal.caching.bean.edge;
 import lombok.Getter;
 import lombok.Setter;
 import tabby.dal.caching.bean.ref.MethodReference;
-import tabby.dal.caching.converter.MethodRef2StringConverter;
+import tabby.dal.caching.converter.MethodRef2LongConverter;
+import tabby.util.IdGenerator;
 
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import java.util.UUID;
 
 /**
  * @author wh1t3P1g
@@ -22,17 +22,17 @@ import java.util.UUID;
 public class Alias {
 
     @Id
-    private String id;
+    private long id;
 
-    @Convert(converter = MethodRef2StringConverter.class)
+    @Convert(converter = MethodRef2LongConverter.class)
     private MethodReference source;
 
-    @Convert(converter = MethodRef2StringConverter.class)
+    @Convert(converter = MethodRef2LongConverter.class)
     private MethodReference target;
 
     public static Alias newInstance(MethodReference source, MethodReference target){
         Alias alias = new Alias();
-        alias.setId(UUID.randomUUID().toString());
+        alias.setId(IdGenerator.next());
         alias.setSource(source);
         alias.setTarget(target);
         return alias;
@@ -1,19 +1,21 @@
 package tabby.dal.caching.bean.edge;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import soot.Unit;
 import soot.Value;
 import tabby.dal.caching.bean.ref.MethodReference;
-import tabby.dal.caching.converter.ListInteger2JsonStringConverter;
-import tabby.dal.caching.converter.MethodRef2StringConverter;
+import tabby.dal.caching.converter.IntArray2JsonStringConverter;
+import tabby.dal.caching.converter.MethodRef2LongConverter;
+import tabby.util.IdGenerator;
+import tabby.util.Symbols;
 
 import javax.persistence.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
 
 /**
  * @author wh1t3P1g
@@ -26,9 +28,9 @@ import java.util.UUID;
 public class Call {
 
     @Id
-    private String id;
+    private long id;
 
-    @Convert(converter = MethodRef2StringConverter.class)
+    @Convert(converter = MethodRef2LongConverter.class)
     private MethodReference source;
 
     /**
@@ -37,7 +39,7 @@ public class Call {
      * 或者直接指向当前的父类的第一个函数
      * 在进行实际检索过程中，可适当进行横向纵向的查找
      */
-    @Convert(converter = MethodRef2StringConverter.class)
+    @Convert(converter = MethodRef2LongConverter.class)
     private MethodReference target;
 
     // 以下信息 保存调用现场
@@ -59,17 +61,50 @@ public class Call {
      *                  a可控，则填充0
      */
     @Column(length = 1000)
-    @Convert(converter = ListInteger2JsonStringConverter.class)
-    private List<Integer> pollutedPosition = new ArrayList<>();
+    @Convert(converter = IntArray2JsonStringConverter.class)
+    private int[] pollutedPosition = new int[0];
+
+    /**
+     * 去重用的hash，由 source、target、invokerType、realCallType、pollutedPosition 计算
+     * 首次调用hashCode时计算并缓存，修改上述字段时重置；调用边加入集合后不应再修改这些字段
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient int hash;
 
     public static Call newInstance(MethodReference source, MethodReference target){
         Call call = new Call();
-        call.setId(UUID.randomUUID().toString());
+        call.setId(IdGenerator.next());
         call.setSource(source);
         call.setTarget(target);
         return call;
     }
 
+    public void setSource(MethodReference source) {
+        this.source = source;
+        hash = 0;
+    }
+
+    public void setTarget(MethodReference target) {
+        this.target = target;
+        hash = 0;
+    }
+
+    public void setInvokerType(String invokerType) {
+        this.invokerType = Symbols.intern(invokerType);
+        hash = 0;
+    }
+
+    public void setRealCallType(String realCallType) {
+        this.realCallType = Symbols.intern(realCallType);
+        hash = 0;
+    }
+
+    public void setPollutedPosition(int[] pollutedPosition) {
+        this.pollutedPosition = pollutedPosition;
+        hash = 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -78,11 +113,35 @@ public class Call {
 
         Call call = (Call) o;
 
-        return new EqualsBuilder().append(source.getId(), call.source.getId()).append(target.getId(), call.target.getId()).append(invokerType, call.invokerType).append(realCallType, call.realCallType).append(pollutedPosition, call.pollutedPosition).isEquals();
+        return hashCode() == call.hashCode()
+                && source.getId() == call.source.getId()
+                && target.getId() == call.target.getId()
+                && Objects.equals(invokerType, call.invokerType)
+                && Objects.equals(realCallType, call.realCallType)
+                && Arrays.equals(pollutedPosition, call.pollutedPosition);
     }
 
+    /**
+     * 计算方式与原 HashCodeBuilder(17, 37) 一致，集合的遍历顺序不变
+     */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37).append(source.getId()).append(target.getId()).append(invokerType).append(realCallType).append(pollutedPosition).toHashCode();
+        int h = hash;
+        if(h == 0){
+            h = 17;
+            h = h * 37 + Long.hashCode(source.getId());
+            h = h * 37 + Long.hashCode(target.getId());
+            h = h * 37 + Objects.hashCode(invokerType);
+            h = h * 37 + Objects.hashCode(realCallType);
+            if(pollutedPosition == null){
+                h = h * 37;
+            }else{
+                for(int pos:pollutedPosition){
+                    h = h * 37 + pos;
+                }
+            }
+            hash = h;
+        }
+        return h;
     }
 }
@@ -4,12 +4,12 @@ import lombok.Getter;
 import lombok.Setter;
 import tabby.dal.caching.bean.ref.ClassReference;
 import tabby.dal.caching.converter.ClassRef2StringConverter;
+import tabby.util.IdGenerator;
 
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import java.util.UUID;
 
 /**
  * @author wh1t3P1g
@@ -22,7 +22,7 @@ import java.util.UUID;
 public class Extend {
 
     @Id
-    private String id;
+    private long id;
 
     @Convert(converter = ClassRef2StringConverter.class)
     private ClassReference source;
@@ -32,7 +32,7 @@ public class Extend {
 
     public static Extend newInstance(ClassReference source, ClassReference target){
         Extend extend = new Extend();
-        extend.setId(UUID.randomUUID().toString());
+        extend.setId(IdGenerator.next());
         extend.setSource(source);
         extend.setTarget(target);
         return extend;
@@ -7,13 +7,13 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import tabby.dal.caching.bean.ref.ClassReference;
 import tabby.dal.caching.bean.ref.MethodReference;
 import tabby.dal.caching.converter.ClassRef2StringConverter;
-import tabby.dal.caching.converter.MethodRef2StringConverter;
+import tabby.dal.caching.converter.MethodRef2LongConverter;
+import tabby.util.IdGenerator;
 
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import java.util.UUID;
 
 /**
  * @author wh1t3P1g
@@ -26,17 +26,17 @@ import java.util.UUID;
 public class Has {
 
     @Id
-    private String id;
+    private long id;
 
     @Convert(converter = ClassRef2StringConverter.class)
     private ClassReference classRef;
 
-    @Convert(converter = MethodRef2StringConverter.class)
+    @Convert(converter = MethodRef2LongConverter.class)
     private MethodReference methodRef;
 
     public static Has newInstance(ClassReference classRef, MethodReference methodRef){
         Has has = new Has();
-        has.setId(UUID.randomUUID().toString());
+        has.setId(IdGenerator.next());
         has.setClassRef(classRef);
         has.setMethodRef(methodRef);
         return has;
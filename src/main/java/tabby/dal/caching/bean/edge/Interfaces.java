@@ -6,12 +6,12 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import tabby.dal.caching.bean.ref.ClassReference;
 import tabby.dal.caching.converter.ClassRef2StringConverter;
+import tabby.util.IdGenerator;
 
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import java.util.UUID;
 
 /**
  * @author wh1t3P1g
@@ -24,7 +24,7 @@ import java.util.UUID;
 public class Interfaces {
 
     @Id
-    private String id;
+    private long id;
 
     @Convert(converter = ClassRef2StringConverter.class)
     private ClassReference source;
@@ -34,7 +34,7 @@ public class Interfaces {
 
     public static Interfaces newInstance(ClassReference source, ClassReference target){
         Interfaces interfaces = new Interfaces();
-        interfaces.setId(UUID.randomUUID().toString());
+        interfaces.setId(IdGenerator.next());
         interfaces.setSource(source);
         interfaces.setTarget(target);
         return interfaces;
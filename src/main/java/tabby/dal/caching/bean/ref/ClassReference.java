@@ -1,6 +1,5 @@
 package tabby.dal.caching.bean.ref;
 
-import com.google.common.hash.Hashing;
 import lombok.Data;
 import org.springframework.data.annotation.Transient;
 import soot.SootClass;
@@ -9,10 +8,11 @@ import tabby.dal.caching.bean.edge.Has;
 import tabby.dal.caching.bean.edge.Interfaces;
 import tabby.dal.caching.converter.List2JsonStringConverter;
 import tabby.dal.caching.converter.Map2JsonStringForAnnotationsConverter;
+import tabby.util.IdGenerator;
 import tabby.util.SemanticHelper;
+import tabby.util.Symbols;
 
 import javax.persistence.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -25,7 +25,7 @@ import java.util.*;
 public class ClassReference {
 
     @Id
-    private String id;
+    private long id;
     //    @Column(unique = true)
     private String name;
     private String superClass;
@@ -86,11 +86,8 @@ public class ClassReference {
 
     public static ClassReference newInstance(String name){
         ClassReference classRef = new ClassReference();
-        String id = Hashing.md5() // 相同class生成的id值也相同
-                .hashString(name, StandardCharsets.UTF_8)
-                .toString();
-        classRef.setId(id);
-        classRef.setName(name);
+        classRef.setId(IdGenerator.hash(name)); // 相同class生成的id值也相同
+        classRef.setName(Symbols.intern(name));
         classRef.setInterfaces(new ArrayList<>());
 //        classRef.setFields(new HashSet<>());
         return classRef;
@@ -115,18 +112,29 @@ public class ClassReference {
         // 提取父类信息
         if(cls.hasSuperclass()){
             classRef.setHasSuperClass(cls.hasSuperclass());
-            classRef.setSuperClass(cls.getSuperclass().getName());
+            classRef.setSuperClass(Symbols.intern(cls.getSuperclass().getName()));
         }
         // 提取接口信息
         if(cls.getInterfaceCount() > 0){
             classRef.setHasInterfaces(true);
             for (SootClass intface : cls.getInterfaces()) {
-                classRef.getInterfaces().add(intface.getName());
+                classRef.getInterfaces().add(Symbols.intern(intface.getName()));
             }
         }
         return classRef;
     }
 
+    /**
+     * 从缓存中加载后，类名等字符串替换为符号表中的实例
+     */
+    public void internSymbols(){
+        name = Symbols.intern(name);
+        superClass = Symbols.intern(superClass);
+        if(interfaces != null){
+            interfaces.replaceAll(Symbols::intern);
+        }
+    }
+
     public void setName(String name){
         // fix name too long error
         if(name.length() >= 255){
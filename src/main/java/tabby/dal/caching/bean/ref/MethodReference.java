@@ -1,7 +1,8 @@
 package tabby.dal.caching.bean.ref;
 
-import com.google.common.hash.Hashing;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -9,15 +10,17 @@ import soot.SootClass;
 import soot.SootMethod;
 import tabby.dal.caching.bean.edge.Alias;
 import tabby.dal.caching.bean.edge.Call;
-import tabby.dal.caching.converter.ListInteger2JsonStringConverter;
+import tabby.dal.caching.converter.IntArray2JsonStringConverter;
 import tabby.dal.caching.converter.Map2JsonStringConverter;
 import tabby.dal.caching.converter.Map2JsonStringForAnnotationsConverter;
+import tabby.util.IdGenerator;
 import tabby.util.SemanticHelper;
+import tabby.util.Symbols;
 
 import javax.persistence.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author wh1t3P1g
@@ -29,8 +32,10 @@ import java.util.concurrent.ConcurrentHashMap;
 @Table(name = "methods")
 public class MethodReference {
 
+    private static final AtomicInteger ACTIONS_VERSION = new AtomicInteger();
+
     @Id
-    private String id;
+    private long id;
 
     private String name;
     @Column(columnDefinition = "TEXT")
@@ -70,16 +75,20 @@ public class MethodReference {
     private boolean isSetter = false;
     private boolean isFromAbstractClass = false;
     private boolean isBodyParseError = false;
+    /**
+     * 超出分析预算时的原因，见 AnalysisBudget，此时actions和调用边可能不完整
+     */
+    private String budgetExceededReason;
 
     /**
      * 指代当前是否初始化过调用边
      */
-    private boolean isInitialed = false;
+    private volatile boolean isInitialed = false;
     /**
      * 指代当前actions是否被初始化过
      * 如果初始化过了，就不需要被覆盖
      */
-    private boolean isActionInitialed = false;
+    private volatile boolean isActionInitialed = false;
 
     /**
      * 污染传递点，主要标记2种类型，this和param
@@ -95,12 +104,18 @@ public class MethodReference {
     @Column(columnDefinition = "TEXT")
     @Convert(converter = Map2JsonStringConverter.class)
     private Map<String, String> actions = new ConcurrentHashMap<>();
+    /**
+     * actions 的版本，每次修改 actions 时从全局计数器取新值
+     * 用于判断调用点缓存的编译后 actions 是否过期，见 DataContainer.getActionSummary
+     */
+    @Setter(AccessLevel.NONE)
+    private transient volatile int actionsVersion = ACTIONS_VERSION.incrementAndGet();
 
-    @Convert(converter = ListInteger2JsonStringConverter.class)
-    private List<Integer> pollutedPosition = new ArrayList<>();
+    @Convert(converter = IntArray2JsonStringConverter.class)
+    private int[] pollutedPosition = new int[0];
 
     @org.springframework.data.annotation.Transient
-    private transient Set<Call> callEdge = new HashSet<>();
+    private transient Set<Call> callEdge = ConcurrentHashMap.newKeySet();
 
 //    /**
 //     * 父类函数、接口函数的依赖边
@@ -109,7 +124,7 @@ public class MethodReference {
 //    private transient Alias aliasEdge;
 
     @org.springframework.data.annotation.Transient
-    private transient Set<Alias> childAliasEdges = new HashSet<>();
+    private transient Set<Alias> childAliasEdges = Collections.synchronizedSet(new HashSet<>());
 
     private transient SootMethod sootMethod = null;
 
@@ -119,18 +134,14 @@ public class MethodReference {
 
     public static MethodReference newInstance(String name, String signature){
         MethodReference methodRef = new MethodReference();
-        String id = null;
+        long id;
         if(signature == null || signature.isEmpty()){
-            id = Hashing.md5()
-                    .hashString(UUID.randomUUID().toString(), StandardCharsets.UTF_8)
-                    .toString();
+            id = IdGenerator.next();
         }else{
             signature = signature.replace("'", ""); // soot生成的可能会带上'
-            id = Hashing.md5() // 相同signature生成的id值也相同
-                    .hashString(signature, StandardCharsets.UTF_8)
-                    .toString();
+            id = IdGenerator.hash(signature); // 相同signature生成的id值也相同
         }
-        methodRef.setName(name);
+        methodRef.setName(Symbols.intern(name));
         methodRef.setId(id);
         methodRef.setSignature(signature);
         return methodRef;
@@ -138,13 +149,13 @@ public class MethodReference {
 
     public static MethodReference newInstance(String classname, SootMethod method){
         MethodReference methodRef = newInstance(method.getName(), method.getSignature());
-        methodRef.setClassname(classname);
+        methodRef.setClassname(Symbols.intern(classname));
         methodRef.setName0(String.format("%s.%s", classname, method.getName()));
         methodRef.setModifiers(method.getModifiers());
         methodRef.setPublic(method.isPublic());
-        methodRef.setSubSignature(method.getSubSignature());
+        methodRef.setSubSignature(Symbols.intern(method.getSubSignature()));
         methodRef.setStatic(method.isStatic());
-        methodRef.setReturnType(method.getReturnType().toString());
+        methodRef.setReturnType(Symbols.intern(method.getReturnType().toString()));
         methodRef.setAbstract(methodRef.isAbstract());
         if(method.getParameterCount() > 0){
             methodRef.setHasParameters(true);
@@ -179,8 +190,24 @@ public class MethodReference {
         }
     }
 
+    /**
+     * 从缓存中加载后，类名、子签名等字符串替换为符号表中的实例
+     */
+    public void internSymbols(){
+        name = Symbols.intern(name);
+        classname = Symbols.intern(classname);
+        subSignature = Symbols.intern(subSignature);
+        returnType = Symbols.intern(returnType);
+    }
+
     public void addAction(String key, String value){
         actions.put(key, value);
+        actionsVersion = ACTIONS_VERSION.incrementAndGet();
+    }
+
+    public void setActions(Map<String, String> actions){
+        this.actions = actions;
+        actionsVersion = ACTIONS_VERSION.incrementAndGet();
     }
 
     public void addCallCounter(){
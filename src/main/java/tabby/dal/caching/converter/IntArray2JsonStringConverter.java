@@ -0,0 +1,70 @@
+package tabby.dal.caching.converter;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * pollutedPosition 等小整数数组与 json 字符串的转换
+ * 格式与原 List<Integer> 经 gson 转换的结果一致，如 [-1,0,-3]，neo4j 中的 POLLUTED_POSITION 属性保持不变
+ * 调用边数量大，这里直接拼接和解析，不经过 gson 及装箱
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+@Converter
+public class IntArray2JsonStringConverter implements AttributeConverter<int[],String> {
+
+    private static final int[] EMPTY = new int[0];
+
+    @Override
+    public String convertToDatabaseColumn(int[] attribute) {
+        if(attribute == null){
+            return "";
+        }
+        return toJson(attribute);
+    }
+
+    @Override
+    public int[] convertToEntityAttribute(String dbData) {
+        if(dbData == null || dbData.trim().isEmpty()){ // 与原先gson的处理一致，空白字符串视为空
+            return EMPTY;
+        }
+        return fromJson(dbData);
+    }
+
+    public static String toJson(int[] data){
+        StringBuilder sb = new StringBuilder(data.length * 3 + 2);
+        sb.append('[');
+        for(int i = 0; i < data.length; i++){
+            if(i > 0) sb.append(',');
+            sb.append(data[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static int[] fromJson(String data){
+        int start = data.indexOf('[');
+        int end = data.lastIndexOf(']');
+        if(start == -1 || end == -1 || end <= start){
+            throw new IllegalArgumentException("Illegal int array: " + data);
+        }
+        int size = 0;
+        boolean empty = true;
+        for(int i = start + 1; i < end; i++){
+            char c = data.charAt(i);
+            if(c == ',') size++;
+            else if(!Character.isWhitespace(c)) empty = false;
+        }
+        if(empty) return EMPTY;
+
+        int[] ret = new int[size + 1];
+        int index = 0;
+        int from = start + 1;
+        for(int i = start + 1; i <= end; i++){
+            if(i == end || data.charAt(i) == ','){
+                ret[index++] = Integer.parseInt(data.substring(from, i).trim());
+                from = i + 1;
+            }
+        }
+        return ret;
+    }
+}
@@ -10,19 +10,19 @@ import javax.persistence.Converter;
  * @since 2021/1/8
  */
 @Converter
-public class MethodRef2StringConverter implements AttributeConverter<MethodReference,String> {
+public class MethodRef2LongConverter implements AttributeConverter<MethodReference,Long> {
     @Override
-    public String convertToDatabaseColumn(MethodReference attribute) {
+    public Long convertToDatabaseColumn(MethodReference attribute) {
         if(attribute == null){
-            return "";
+            return null;
         }
 
         return attribute.getId();
     }
 
     @Override
-    public MethodReference convertToEntityAttribute(String dbData) {
-        if(dbData == null || "".equals(dbData)){
+    public MethodReference convertToEntityAttribute(Long dbData) {
+        if(dbData == null){
             return null;
         }
         MethodReference methodRef = new MethodReference();
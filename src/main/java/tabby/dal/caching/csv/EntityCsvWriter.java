@@ -0,0 +1,171 @@
+package tabby.dal.caching.csv;
+
+import lombok.Getter;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Convert;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将entity直接追加写入csv文件
+ * 列与h2中的表结构保持一致：非transient字段，列名为大写下划线形式，带@Convert的字段使用对应的converter转换
+ * 输出格式与h2的CSVWRITE一致，非null值均使用双引号包裹，null输出为空
+ * @author wh1t3p1g
+ * @since 2023/2/12
+ */
+public class EntityCsvWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final List<Column> columns;
+    @Getter
+    private long rows = 0;
+    private boolean closed = false;
+
+    public EntityCsvWriter(Path path, Class<?> type) throws IOException {
+        this.columns = makeColumns(type);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        StringBuilder header = new StringBuilder();
+        for(Column column:columns){
+            if(header.length() > 0) header.append(',');
+            quote(column.name, header);
+        }
+        header.append('\n');
+        append(header.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public synchronized void write(Object entity) throws IOException {
+        if(closed) throw new IOException("Writer already closed");
+
+        StringBuilder row = new StringBuilder(256);
+        for(int i = 0; i < columns.size(); i++){
+            if(i > 0) row.append(',');
+            Object value = columns.get(i).get(entity);
+            if(value == null) continue;
+            if(value instanceof Boolean){
+                quote((Boolean) value ? "TRUE" : "FALSE", row);
+            }else{
+                quote(value.toString(), row);
+            }
+        }
+        row.append('\n');
+        append(row.toString().getBytes(StandardCharsets.UTF_8));
+        rows++;
+    }
+
+    public synchronized void close() throws IOException {
+        if(closed) return;
+        closed = true;
+        try{
+            flush();
+        }finally {
+            channel.close();
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        if(bytes.length > buffer.remaining()){
+            flush();
+        }
+        if(bytes.length > buffer.capacity()){
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while(large.hasRemaining()){
+                channel.write(large);
+            }
+        }else{
+            buffer.put(bytes);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void quote(String value, StringBuilder sb){
+        sb.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static List<Column> makeColumns(Class<?> type){
+        List<Column> columns = new ArrayList<>();
+        for(Field field:type.getDeclaredFields()){
+            int modifiers = field.getModifiers();
+            if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) continue;
+
+            field.setAccessible(true);
+            AttributeConverter<Object, String> converter = null;
+            Convert convert = field.getAnnotation(Convert.class);
+            if(convert != null){
+                converter = newConverter(convert.converter());
+            }
+            columns.add(new Column(toColumnName(field.getName()), field, converter));
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AttributeConverter<Object, String> newConverter(Class<?> type){
+        try{
+            return (AttributeConverter<Object, String>) type.getDeclaredConstructor().newInstance();
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException("Can't create converter " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 与spring的命名策略一致，isSink -> IS_SINK
+     */
+    private static String toColumnName(String name){
+        StringBuilder sb = new StringBuilder(name);
+        for(int i = 1; i < sb.length() - 1; i++){
+            if(Character.isLowerCase(sb.charAt(i - 1))
+                    && Character.isUpperCase(sb.charAt(i))
+                    && Character.isLowerCase(sb.charAt(i + 1))){
+                sb.insert(i++, '_');
+            }
+        }
+        return sb.toString().toUpperCase();
+    }
+
+    private static class Column {
+        private final String name;
+        private final Field field;
+        private final AttributeConverter<Object, String> converter;
+
+        private Column(String name, Field field, AttributeConverter<Object, String> converter){
+            this.name = name;
+            this.field = field;
+            this.converter = converter;
+        }
+
+        private Object get(Object entity){
+            try{
+                Object value = field.get(entity);
+                return converter == null ? value : converter.convertToDatabaseColumn(value);
+            }catch (IllegalAccessException e){
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -11,7 +11,7 @@ import tabby.dal.caching.bean.edge.Alias;
  * @since 2021/1/8
  */
 @Repository
-public interface AliasEdgeRepository extends CrudRepository<Alias, String> {
+public interface AliasEdgeRepository extends CrudRepository<Alias, Long> {
 
     @Query(value = "CALL CSVWRITE(:path, 'SELECT * FROM ALIAS')", nativeQuery=true)
     void save2Csv(@Param("path") String path);
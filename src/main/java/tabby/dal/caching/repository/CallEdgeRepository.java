@@ -11,7 +11,7 @@ import tabby.dal.caching.bean.edge.Call;
  * @since 2021/1/8
  */
 @Repository
-public interface CallEdgeRepository extends CrudRepository<Call, String> {
+public interface CallEdgeRepository extends CrudRepository<Call, Long> {
     @Query(value = "CALL CSVWRITE(:path, 'SELECT * FROM CALL')", nativeQuery=true)
     void save2Csv(@Param("path") String path);
 
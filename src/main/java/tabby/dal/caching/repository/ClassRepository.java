@@ -13,7 +13,7 @@ import java.util.List;
  * @since 2021/1/8
  */
 @Repository
-public interface ClassRepository extends CrudRepository<ClassReference, String> {
+public interface ClassRepository extends CrudRepository<ClassReference, Long> {
 
     @Query(value = "select * from CLASSES where NAME = :name limit 1", nativeQuery = true)
     ClassReference findClassReferenceByName(String name);
@@ -11,7 +11,7 @@ import tabby.dal.caching.bean.edge.Extend;
  * @since 2021/1/8
  */
 @Repository
-public interface ExtendEdgeRepository extends CrudRepository<Extend, String> {
+public interface ExtendEdgeRepository extends CrudRepository<Extend, Long> {
 
     @Query(value = "CALL CSVWRITE(:path, 'SELECT * FROM EXTEND')", nativeQuery=true)
     void save2Csv(@Param("path") String path);
@@ -11,7 +11,7 @@ import tabby.dal.caching.bean.edge.Has;
  * @since 2021/1/8
  */
 @Repository
-public interface HasEdgeRepository extends CrudRepository<Has, String> {
+public interface HasEdgeRepository extends CrudRepository<Has, Long> {
 
     @Query(value = "CALL CSVWRITE(:path, 'SELECT * FROM HAS')", nativeQuery=true)
     void save2Csv(@Param("path") String path);
@@ -11,7 +11,7 @@ import tabby.dal.caching.bean.edge.Interfaces;
  * @since 2021/1/8
  */
 @Repository
-public interface InterfacesEdgeRepository extends CrudRepository<Interfaces, String> {
+public interface InterfacesEdgeRepository extends CrudRepository<Interfaces, Long> {
 
     @Query(value = "CALL CSVWRITE(:path, 'SELECT * FROM INTERFACES')", nativeQuery=true)
     void save2Csv(@Param("path") String path);
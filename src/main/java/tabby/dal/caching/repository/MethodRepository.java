@@ -13,7 +13,7 @@ import java.util.List;
  * @since 2021/1/8
  */
 @Repository
-public interface MethodRepository extends CrudRepository<MethodReference, String> {
+public interface MethodRepository extends CrudRepository<MethodReference, Long> {
 
     @Query(value = "select * from METHODS where SIGNATURE = :signature limit 1", nativeQuery = true)
     MethodReference findMethodReferenceBySignature(String signature);
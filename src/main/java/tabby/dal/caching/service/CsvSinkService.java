@@ -0,0 +1,133 @@
+package tabby.dal.caching.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import tabby.config.GlobalConfiguration;
+import tabby.dal.caching.bean.edge.*;
+import tabby.dal.caching.bean.ref.ClassReference;
+import tabby.dal.caching.bean.ref.MethodReference;
+import tabby.dal.caching.csv.EntityCsvWriter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 节点和边直接写入 GRAPHDB_PUBLIC_*.csv，不经过h2
+ * class、method节点在分析过程中仍会被查找，会保留在内存中并多次提交，这里按id去重，只写入一次
+ * @author wh1t3p1g
+ * @since 2023/2/12
+ */
+@Slf4j
+@Service
+public class CsvSinkService {
+
+    private final Map<String, EntityCsvWriter> writers = new ConcurrentHashMap<>();
+    private final Set<Long> writtenClasses = ConcurrentHashMap.newKeySet();
+    private final Set<Long> writtenMethods = ConcurrentHashMap.newKeySet();
+
+    public void saveClassRefs(Collection<ClassReference> refs){
+        EntityCsvWriter writer = getWriter("class");
+        for(ClassReference ref:refs){
+            if(writtenClasses.add(ref.getId())){
+                write(writer, ref);
+            }
+        }
+    }
+
+    public void saveMethodRefs(Collection<MethodReference> refs){
+        EntityCsvWriter writer = getWriter("method");
+        for(MethodReference ref:refs){
+            if(writtenMethods.add(ref.getId())){
+                write(writer, ref);
+            }
+        }
+    }
+
+    public void saveEdges(String type, Collection<?> edges){
+        EntityCsvWriter writer = getWriter(type);
+        for(Object edge:edges){
+            write(writer, edge);
+        }
+    }
+
+    /**
+     * 关闭所有文件，没有数据的类型也会生成只有表头的文件，与h2导出的结果保持一致
+     */
+    public void close(){
+        for(String type:Arrays.asList("class", "method", "has", "call", "alias", "extend", "interfaces")){
+            EntityCsvWriter writer = getWriter(type);
+            try{
+                writer.close();
+            }catch (IOException e){
+                log.error("Close {} csv error: {}", type, e.getMessage());
+            }
+        }
+        writtenClasses.clear();
+        writtenMethods.clear();
+    }
+
+    public void count(){
+        long classes = getRows("class");
+        long methods = getRows("method");
+        log.info("Total {}, classes: {}, methods: {}", classes + methods, classes, methods);
+
+        long has = getRows("has");
+        long call = getRows("call");
+        long extend = getRows("extend");
+        long alias = getRows("alias");
+        long interfaces = getRows("interfaces");
+        log.info("Total {}, has count: {}, call count: {}, extend count: {}, alias count: {}, interfaces count: {}",
+                has + call + extend + alias + interfaces, has, call, extend, alias, interfaces);
+    }
+
+    private long getRows(String type){
+        EntityCsvWriter writer = writers.get(type);
+        return writer == null ? 0 : writer.getRows();
+    }
+
+    private void write(EntityCsvWriter writer, Object entity){
+        try{
+            writer.write(entity);
+        }catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private EntityCsvWriter getWriter(String type){
+        return writers.computeIfAbsent(type, key -> {
+            try{
+                return new EntityCsvWriter(Paths.get(getPath(key)), getEntityType(key));
+            }catch (IOException e){
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static String getPath(String type){
+        switch (type){
+            case "class": return GlobalConfiguration.CLASSES_OUTPUT_PATH;
+            case "method": return GlobalConfiguration.METHODS_OUTPUT_PATH;
+            case "has": return GlobalConfiguration.HAS_RELATIONSHIP_OUTPUT_PATH;
+            case "call": return GlobalConfiguration.CALL_RELATIONSHIP_OUTPUT_PATH;
+            case "alias": return GlobalConfiguration.ALIAS_RELATIONSHIP_OUTPUT_PATH;
+            case "extend": return GlobalConfiguration.EXTEND_RELATIONSHIP_OUTPUT_PATH;
+            case "interfaces": return GlobalConfiguration.INTERFACE_RELATIONSHIP_OUTPUT_PATH;
+            default: throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    private static Class<?> getEntityType(String type){
+        switch (type){
+            case "class": return ClassReference.class;
+            case "method": return MethodReference.class;
+            case "has": return Has.class;
+            case "call": return Call.class;
+            case "alias": return Alias.class;
+            case "extend": return Extend.class;
+            case "interfaces": return Interfaces.class;
+            default: throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+}
@@ -33,6 +33,33 @@ public interface ClassRefRepository extends Neo4jRepository<ClassEntity, String>
     @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH(c:Class{NAME:row.CLASS_REF}) MATCH(m:Method { ID:row.METHOD_REF }) MERGE (c) -[e:HAS { ID:row.ID }]-> (m)\", {batchSize:1000, iterateList:true, parallel:false}) yield total")
     int loadHasEdgeFromCSV(String path);
 
+    /**
+     * 以下create开头的函数仅用于空库导入
+     * 空库中不存在需要合并的节点和边，直接CREATE，避免MERGE在高出度节点上逐条比较已有的边
+     */
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', " +
+            "{header:true, ignore: ['CHILD_CLASSNAMES','IS_PHANTOM','IS_INITIALED', 'FIELDS'], mapping:{ " +
+            "IS_INTERFACE: {type:'boolean'}, " +
+            "IS_ABSTRACT: {type:'boolean'}, " +
+            "HAS_SUPER_CLASS: {type:'boolean'}, " +
+            "HAS_INTERFACES: {type:'boolean'}, " +
+            "IS_STRUTS_ACTION: {type:'boolean'}, " +
+            "HAS_DEFAULT_CONSTRUCTOR: {type:'boolean'}, " +
+            "IS_SERIALIZABLE:{type:'boolean'}}}) YIELD map AS row RETURN row\",\"CREATE (c:Class) SET c = row\", {batchSize:10000, iterateList:true, parallel:true}) yield total")
+    int createClassRefFromCSV(String path);
+
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH( c1:Class {NAME:row.SOURCE} ) MATCH ( c2:Class { NAME:row.TARGET } ) CREATE (c1) -[e:EXTENDS { ID:row.ID }] -> (c2)\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
+    int createExtendEdgeFromCSV(String path);
+
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH( c1:Class {NAME:row.SOURCE} ) MATCH ( c2:Class { NAME:row.TARGET } ) CREATE (c1) -[e:INTERFACE { ID:row.ID }] -> (c2)\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
+    int createInterfacesEdgeFromCSV(String path);
+
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH(c:Class{NAME:row.CLASS_REF}) MATCH(m:Method { ID:row.METHOD_REF }) CREATE (c) -[e:HAS { ID:row.ID }]-> (m)\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
+    int createHasEdgeFromCSV(String path);
+
+    @Query("MATCH (n) WITH n LIMIT 1 RETURN count(n)")
+    int countFirstNode();
+
     @Query("CALL apoc.periodic.iterate(\"match (n) return n\",\"detach delete n\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
     int clearAll();
 
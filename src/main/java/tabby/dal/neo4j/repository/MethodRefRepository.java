@@ -38,4 +38,34 @@ public interface MethodRefRepository extends Neo4jRepository<MethodEntity, Strin
 
     @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH ( m1:Method {ID:row.SOURCE} ) MATCH ( m2:Method {ID:row.TARGET }) MERGE (m1)-[e:ALIAS {ID:row.ID}]-(m2)\", {batchSize:1000, iterateList:true, parallel:false}) yield total")
     int loadAliasEdgeFromCSV(String path);
-}
\ No newline at end of file
+
+    /**
+     * 以下create开头的函数仅用于空库导入，见ClassRefRepository
+     */
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', " +
+            "{header:true, ignore: ['IS_INITIALED','ACTIONS', 'IS_ACTION_INITIALED', 'IS_BODY_PARSE_ERROR'], mapping:{ " +
+            "IS_SINK: {type:'boolean'}, " +
+            "IS_SOURCE: {type:'boolean'}, " +
+            "IS_CONTAINS_SOURCE: {type:'boolean'}, " +
+            "IS_STATIC: {type:'boolean'}, " +
+            "IS_ENDPOINT: {type:'boolean'}, " +
+            "IS_NETTY_ENDPOINT: {type:'boolean'}, " +
+            "HAS_PARAMETERS:{type:'boolean'}, " +
+            "IS_FROM_ABSTRACT_CLASS: { type: 'boolean'}, " +
+            "IS_GETTER:{type:'boolean'}, " +
+            "IS_SETTER:{type:'boolean'}, " +
+            "IS_PUBLIC:{type:'boolean'}, " +
+            "IS_ABSTRACT:{type:'boolean'}, " +
+            "HAS_DEFAULT_CONSTRUCTOR:{type:'boolean'}, " +
+            "IS_ACTION_CONTAINS_SWAP:{type:'boolean'}, " +
+            "IS_CONTAINS_OUT_OF_MEM_OPTIONS:{type:'boolean'}, " +
+            "IS_IGNORE: { type: 'boolean'}, IS_SERIALIZABLE:{type:'boolean'}, " +
+            "MODIFIERS:{type:'int'}, PARAMETER_SIZE:{type:'int'}}}) YIELD map AS row RETURN row\", \"CREATE(m:Method) SET m = row\", {batchSize:10000, iterateList:true, parallel:true}) yield total")
+    int createMethodRefFromCSV(String path);
+
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH ( m1:Method {ID:row.SOURCE} ) MATCH ( m2:Method {ID:row.TARGET }) CREATE (m1)-[e:CALL {ID:row.ID, LINE_NUM:row.LINE_NUM, INVOKER_TYPE:row.INVOKER_TYPE, POLLUTED_POSITION:row.POLLUTED_POSITION, REAL_CALL_TYPE:row.REAL_CALL_TYPE}]->(m2)\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
+    int createCallEdgeFromCSV(String path);
+
+    @Query("CALL apoc.periodic.iterate(\"CALL apoc.load.csv('file://\"+$path+\"', {header:true}) YIELD map AS row RETURN row\",\"MATCH ( m1:Method {ID:row.SOURCE} ) MATCH ( m2:Method {ID:row.TARGET }) CREATE (m1)-[e:ALIAS {ID:row.ID}]->(m2)\", {batchSize:10000, iterateList:true, parallel:false}) yield total")
+    int createAliasEdgeFromCSV(String path);
+}
@@ -0,0 +1,186 @@
+package tabby.dal.neo4j.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import tabby.config.GlobalConfiguration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 生成 neo4j-admin database import 可直接使用的csv文件及导入脚本
+ * 在h2导出的csv基础上，只替换表头，数据部分直接拷贝
+ * 节点使用 Class/Method 两个ID空间，Class以NAME作为ID，Method以ID作为ID，与apoc导入时的匹配条件保持一致
+ * neo4j-admin 导入需要先停止neo4j，且会覆盖目标数据库
+ * @author wh1t3p1g
+ * @since 2023/2/11
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    public static final String BULK_DIRECTORY = "bulk";
+    public static final String SCRIPT_NAME = "neo4j-admin-import.sh";
+
+    private static final List<String> CLASS_BOOLEANS = Arrays.asList(
+            "IS_INTERFACE", "IS_ABSTRACT", "HAS_SUPER_CLASS", "HAS_INTERFACES",
+            "IS_STRUTS_ACTION", "HAS_DEFAULT_CONSTRUCTOR", "IS_SERIALIZABLE");
+    private static final List<String> METHOD_BOOLEANS = Arrays.asList(
+            "IS_SINK", "IS_SOURCE", "IS_CONTAINS_SOURCE", "IS_STATIC", "IS_ENDPOINT",
+            "IS_NETTY_ENDPOINT", "HAS_PARAMETERS", "IS_FROM_ABSTRACT_CLASS", "IS_GETTER",
+            "IS_SETTER", "IS_PUBLIC", "IS_ABSTRACT", "HAS_DEFAULT_CONSTRUCTOR",
+            "IS_ACTION_CONTAINS_SWAP", "IS_CONTAINS_OUT_OF_MEM_OPTIONS", "IS_IGNORE", "IS_SERIALIZABLE");
+
+    public void export(){
+        Path directory = Paths.get(GlobalConfiguration.OUTPUT_DIRECTORY, BULK_DIRECTORY);
+        List<String> arguments = new ArrayList<>();
+        try{
+            Files.createDirectories(directory);
+            for(Spec spec:makeSpecs()){
+                Path source = Paths.get(spec.path);
+                if(!Files.exists(source)) continue;
+
+                Path target = directory.resolve(source.getFileName());
+                convert(source, target, spec);
+                arguments.add(String.format("  --%s=%s=\"%s\"", spec.isNode ? "nodes" : "relationships",
+                        spec.name, target.toAbsolutePath()));
+            }
+            writeScript(directory.resolve(SCRIPT_NAME), arguments);
+            log.info("Save bulk import files to {}", directory.toAbsolutePath());
+        }catch (IOException e){
+            log.error("Save bulk import files error: {}", e.getMessage());
+        }
+    }
+
+    private List<Spec> makeSpecs(){
+        List<Spec> specs = new ArrayList<>();
+
+        Spec classes = new Spec("Class", true, GlobalConfiguration.CLASSES_OUTPUT_PATH);
+        classes.headers.put("NAME", "NAME:ID(Class)");
+        CLASS_BOOLEANS.forEach(column -> classes.headers.put(column, column + ":boolean"));
+        classes.ignores.addAll(Arrays.asList("CHILD_CLASSNAMES", "IS_PHANTOM", "IS_INITIALED", "FIELDS"));
+        specs.add(classes);
+
+        Spec methods = new Spec("Method", true, GlobalConfiguration.METHODS_OUTPUT_PATH);
+        methods.headers.put("ID", "ID:ID(Method)");
+        METHOD_BOOLEANS.forEach(column -> methods.headers.put(column, column + ":boolean"));
+        methods.headers.put("MODIFIERS", "MODIFIERS:int");
+        methods.headers.put("PARAMETER_SIZE", "PARAMETER_SIZE:int");
+        methods.ignores.addAll(Arrays.asList("IS_INITIALED", "ACTIONS", "IS_ACTION_INITIALED", "IS_BODY_PARSE_ERROR"));
+        specs.add(methods);
+
+        specs.add(makeEdgeSpec("EXTENDS", GlobalConfiguration.EXTEND_RELATIONSHIP_OUTPUT_PATH,
+                "SOURCE", "Class", "TARGET", "Class"));
+        specs.add(makeEdgeSpec("INTERFACE", GlobalConfiguration.INTERFACE_RELATIONSHIP_OUTPUT_PATH,
+                "SOURCE", "Class", "TARGET", "Class"));
+        specs.add(makeEdgeSpec("HAS", GlobalConfiguration.HAS_RELATIONSHIP_OUTPUT_PATH,
+                "CLASS_REF", "Class", "METHOD_REF", "Method"));
+        specs.add(makeEdgeSpec("CALL", GlobalConfiguration.CALL_RELATIONSHIP_OUTPUT_PATH,
+                "SOURCE", "Method", "TARGET", "Method",
+                "LINE_NUM", "INVOKER_TYPE", "POLLUTED_POSITION", "REAL_CALL_TYPE"));
+        specs.add(makeEdgeSpec("ALIAS", GlobalConfiguration.ALIAS_RELATIONSHIP_OUTPUT_PATH,
+                "SOURCE", "Method", "TARGET", "Method"));
+        return specs;
+    }
+
+    /**
+     * 边只保留apoc导入时使用的属性，其余列忽略
+     */
+    private Spec makeEdgeSpec(String type, String path, String start, String startSpace,
+                              String end, String endSpace, String... properties){
+        Spec spec = new Spec(type, false, path);
+        spec.headers.put(start, String.format(":START_ID(%s)", startSpace));
+        spec.headers.put(end, String.format(":END_ID(%s)", endSpace));
+        spec.properties.add("ID");
+        spec.properties.addAll(Arrays.asList(properties));
+        return spec;
+    }
+
+    /**
+     * 读取并替换第一行表头，剩余内容通过FileChannel直接拷贝
+     */
+    private void convert(Path source, Path target, Spec spec) throws IOException {
+        try(FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            in.read(buffer, 0);
+            buffer.flip();
+
+            int end = -1;
+            for(int i = 0; i < buffer.limit(); i++){
+                if(buffer.get(i) == '\n'){
+                    end = i;
+                    break;
+                }
+            }
+            if(end == -1) return; // 空文件
+
+            int headerEnd = end > 0 && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            String header = new String(buffer.array(), 0, headerEnd, StandardCharsets.UTF_8);
+            String lineSeparator = headerEnd == end ? "\n" : "\r\n";
+            out.write(ByteBuffer.wrap((convertHeader(header, spec) + lineSeparator).getBytes(StandardCharsets.UTF_8)));
+
+            long position = end + 1;
+            long size = in.size();
+            while(position < size){
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    private String convertHeader(String header, Spec spec){
+        StringJoiner joiner = new StringJoiner(",");
+        for(String column:header.split(",")){
+            column = column.trim();
+            if(column.startsWith("\"") && column.endsWith("\"") && column.length() > 1){
+                column = column.substring(1, column.length() - 1);
+            }
+            if(spec.headers.containsKey(column)){
+                joiner.add(spec.headers.get(column));
+            }else if(spec.ignores.contains(column)
+                    || (!spec.isNode && !spec.properties.contains(column))){
+                joiner.add(":IGNORE");
+            }else{
+                joiner.add(column);
+            }
+        }
+        return joiner.toString();
+    }
+
+    private void writeScript(Path script, List<String> arguments) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("#!/bin/sh");
+        lines.add("# 需要先停止neo4j，导入会覆盖目标数据库，默认为neo4j");
+        lines.add("neo4j-admin database import full --overwrite-destination=true \\");
+        lines.add("  --skip-duplicate-nodes=true --skip-bad-relationships=true --multiline-fields=true \\");
+        for(String argument:arguments){
+            lines.add(argument + " \\");
+        }
+        lines.add("  ${1:-neo4j}");
+        Files.write(script, lines, StandardCharsets.UTF_8);
+        script.toFile().setExecutable(true);
+    }
+
+    private static class Spec {
+        private final String name;
+        private final boolean isNode;
+        private final String path;
+        private final Map<String, String> headers = new HashMap<>();
+        private final Set<String> ignores = new HashSet<>();
+        private final Set<String> properties = new HashSet<>();
+
+        private Spec(String name, boolean isNode, String path){
+            this.name = name;
+            this.isNode = isNode;
+            this.path = path;
+        }
+    }
+}
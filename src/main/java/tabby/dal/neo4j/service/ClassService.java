@@ -8,6 +8,8 @@ import tabby.dal.neo4j.repository.ClassRefRepository;
 import tabby.dal.neo4j.repository.MethodRefRepository;
 import tabby.util.FileUtils;
 
+import java.util.function.Function;
+
 /**
  * @author wh1t3P1g
  * @since 2021/3/29
@@ -28,59 +30,54 @@ public class ClassService {
 //        methodRefRepository.deleteAll();
     }
 
-    public void importClassRef(){
-        if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            classRefRepository.loadClassRefFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_CLASSES.csv");
-        } else if (FileUtils.fileExists(GlobalConfiguration.CLASSES_OUTPUT_PATH)){
-            classRefRepository.loadClassRefFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.CLASSES_OUTPUT_PATH));
-        }
+    /**
+     * 判断neo4j中是否已存在节点
+     * @return true 空库
+     */
+    public boolean isDatabaseEmpty(){
+        return classRefRepository.countFirstNode() == 0;
     }
 
-    public void buildEdge(){
-        if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            log.info("Save Extend relationship");
-            classRefRepository.loadExtendEdgeFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_EXTEND.csv");
-        } else if(FileUtils.fileExists(GlobalConfiguration.EXTEND_RELATIONSHIP_OUTPUT_PATH)){
-            log.info("Save Extend relationship");
-            classRefRepository.loadExtendEdgeFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.EXTEND_RELATIONSHIP_OUTPUT_PATH));
-        }
+    public void importClassRef(){
+        importClassRef(false);
+    }
 
-        if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            log.info("Save Interface relationship");
-            classRefRepository.loadInterfacesEdgeFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_INTERFACES.csv");
-        } else if(FileUtils.fileExists(GlobalConfiguration.INTERFACE_RELATIONSHIP_OUTPUT_PATH)){
-            log.info("Save Interface relationship");
-            classRefRepository.loadInterfacesEdgeFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.INTERFACE_RELATIONSHIP_OUTPUT_PATH));
-        }
+    public void importClassRef(boolean isEmpty){
+        load(null, "GRAPHDB_PUBLIC_CLASSES.csv", GlobalConfiguration.CLASSES_OUTPUT_PATH,
+                isEmpty ? classRefRepository::createClassRefFromCSV : classRefRepository::loadClassRefFromCSV);
+    }
 
-        if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            log.info("Save Has relationship");
-            classRefRepository.loadHasEdgeFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_HAS.csv");
-        } else if(FileUtils.fileExists(GlobalConfiguration.HAS_RELATIONSHIP_OUTPUT_PATH)){
-            log.info("Save Has relationship");
-            classRefRepository.loadHasEdgeFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.HAS_RELATIONSHIP_OUTPUT_PATH));
-        }
+    public void buildEdge(){
+        buildEdge(false);
+    }
 
-        if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            log.info("Save Call relationship");
-            methodRefRepository.loadCallEdgeFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_CALL.csv");
-        } else if(FileUtils.fileExists(GlobalConfiguration.CALL_RELATIONSHIP_OUTPUT_PATH)){
-            log.info("Save Call relationship");
-            methodRefRepository.loadCallEdgeFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.CALL_RELATIONSHIP_OUTPUT_PATH));
-        }
+    /**
+     * 导入所有的边
+     * @param isEmpty 空库时直接CREATE，不做MERGE
+     */
+    public void buildEdge(boolean isEmpty){
+        load("Extend", "GRAPHDB_PUBLIC_EXTEND.csv", GlobalConfiguration.EXTEND_RELATIONSHIP_OUTPUT_PATH,
+                isEmpty ? classRefRepository::createExtendEdgeFromCSV : classRefRepository::loadExtendEdgeFromCSV);
+        load("Interface", "GRAPHDB_PUBLIC_INTERFACES.csv", GlobalConfiguration.INTERFACE_RELATIONSHIP_OUTPUT_PATH,
+                isEmpty ? classRefRepository::createInterfacesEdgeFromCSV : classRefRepository::loadInterfacesEdgeFromCSV);
+        load("Has", "GRAPHDB_PUBLIC_HAS.csv", GlobalConfiguration.HAS_RELATIONSHIP_OUTPUT_PATH,
+                isEmpty ? classRefRepository::createHasEdgeFromCSV : classRefRepository::loadHasEdgeFromCSV);
+        load("Call", "GRAPHDB_PUBLIC_CALL.csv", GlobalConfiguration.CALL_RELATIONSHIP_OUTPUT_PATH,
+                isEmpty ? methodRefRepository::createCallEdgeFromCSV : methodRefRepository::loadCallEdgeFromCSV);
+        load("Alias", "GRAPHDB_PUBLIC_ALIAS.csv", GlobalConfiguration.ALIAS_RELATIONSHIP_OUTPUT_PATH,
+                isEmpty ? methodRefRepository::createAliasEdgeFromCSV : methodRefRepository::loadAliasEdgeFromCSV);
+    }
 
+    /**
+     * docker环境下从neo4j的import目录读取，否则从output目录读取
+     */
+    private void load(String type, String filename, String path, Function<String, Integer> loader){
         if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            log.info("Save Alias relationship");
-            methodRefRepository.loadAliasEdgeFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_ALIAS.csv");
-        } else if(FileUtils.fileExists(GlobalConfiguration.ALIAS_RELATIONSHIP_OUTPUT_PATH)){
-            log.info("Save Alias relationship");
-            methodRefRepository.loadAliasEdgeFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.ALIAS_RELATIONSHIP_OUTPUT_PATH));
+            if(type != null) log.info("Save {} relationship", type);
+            loader.apply("/var/lib/neo4j/import/" + filename);
+        } else if(FileUtils.fileExists(path)){
+            if(type != null) log.info("Save {} relationship", type);
+            loader.apply(FileUtils.getWinPath(path));
         }
     }
 
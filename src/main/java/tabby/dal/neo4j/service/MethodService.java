@@ -19,11 +19,25 @@ public class MethodService {
     private MethodRefRepository methodRefRepository;
 
     public void importMethodRef(){
+        importMethodRef(false);
+    }
+
+    /**
+     * @param isEmpty 空库时直接CREATE，不做MERGE
+     */
+    public void importMethodRef(boolean isEmpty){
         if(GlobalConfiguration.IS_DOCKER_IMPORT_PATH){
-            methodRefRepository.loadMethodRefFromCSV("/var/lib/neo4j/import/GRAPHDB_PUBLIC_METHODS.csv");
+            load("/var/lib/neo4j/import/GRAPHDB_PUBLIC_METHODS.csv", isEmpty);
         } else if(FileUtils.fileExists(GlobalConfiguration.METHODS_OUTPUT_PATH)){
-            methodRefRepository.loadMethodRefFromCSV(
-                    FileUtils.getWinPath(GlobalConfiguration.METHODS_OUTPUT_PATH));
+            load(FileUtils.getWinPath(GlobalConfiguration.METHODS_OUTPUT_PATH), isEmpty);
+        }
+    }
+
+    private void load(String path, boolean isEmpty){
+        if(isEmpty){
+            methodRefRepository.createMethodRefFromCSV(path);
+        }else{
+            methodRefRepository.loadMethodRefFromCSV(path);
         }
     }
 
@@ -15,13 +15,28 @@ public enum ArgumentEnum {
     IS_JDK_ONLY("tabby.build.isJDKOnly"),
     LOAD_ENABLE("tabby.load.enable"),
     CHECK_FAT_JAR("tabby.build.checkFatJar"),
+    IS_VIRTUAL_CLASSPATH("tabby.build.isVirtualClasspath"),
+    IS_PARALLEL_JSP_COMPILE("tabby.build.jsp.isParallelCompile"),
+    SET_JSP_BATCH_SIZE("tabby.build.jsp.batchSize"),
     SET_PTA_ENABLE("tabby.build.pta"),
     SET_DEBUG_ENABLE("tabby.debug.details"),
     SET_THREADS_TIMEOUT("tabby.build.thread.timeout"),
+    SET_THREADS_SIZE("tabby.build.thread.size"),
+    SET_BUDGET_UNITS("tabby.build.budget.units"),
+    SET_BUDGET_TIME("tabby.build.budget.time"),
+    SET_BUDGET_DEPTH("tabby.build.budget.depth"),
     SET_BUILD_MODE("tabby.build.mode"),
+    SET_HASH_ALGORITHM("tabby.build.hash.algorithm"),
     SET_EXCLUDE_LIBRARIES("tabby.build.libraries.excludes"),
     IS_FULL_CALL_GRAPH_CREATE("tabby.build.isFullCallGraphCreate"),
+    IS_PARALLEL_CLASS_EDGES_CREATE("tabby.build.isParallelClassEdgesCreate"),
+    IS_BOTTOM_UP_SCHEDULE("tabby.build.isBottomUpSchedule"),
     IS_DOCKER_IMPORT_PATH("tabby.cache.isDockerImportPath"),
+    IS_BULK_IMPORT_FORMAT("tabby.output.isBulkImportFormat"),
+    IS_STREAMING_CSV("tabby.cache.isStreamingCSV"),
+    IS_INCREMENTAL_BUILD("tabby.cache.isIncrementalBuild"),
+    IS_METHOD_SUMMARY_CACHE("tabby.cache.isMethodSummaryCache"),
+    INCREMENTAL_CACHE_DIRECTORY("tabby.cache.incremental.directory"),
     IS_NEET_TO_CREATE_IGNORE_LIST("tabby.build.isNeedToCreateIgnoreList"),
     ;
 
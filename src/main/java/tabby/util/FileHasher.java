@@ -0,0 +1,199 @@
+package tabby.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+import tabby.config.GlobalConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 计算jar包、jmod等文件的hash，作为文件的唯一标识（增量缓存、函数摘要、ignores.json均依赖该值）
+ * 1. 多个文件并行计算，文件内容通过内存映射读取，fatJar、war 中的jar包直接从压缩包中读取
+ * 2. 结果按 路径、文件大小、修改时间 缓存在 tabby.output.directory/file-hashes.json，文件未变化时不再重复计算
+ * 3. 默认使用md5，与已有的缓存保持一致；murmur3 计算更快，但切换后原有的缓存和ignores.json中的记录将不再命中
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+@Slf4j
+public class FileHasher {
+
+    public static final String MD5 = "md5";
+    public static final String MURMUR3 = "murmur3";
+
+    private static final String FILENAME = "file-hashes.json";
+    private static final Gson GSON = new Gson();
+    private static final Type TYPE = new TypeToken<Map<String, Entry>>(){}.getType();
+    /**
+     * 单次映射的最大长度
+     */
+    private static final long CHUNK_SIZE = 256L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static volatile Map<String, Entry> cache;
+    private static volatile boolean changed = false;
+
+    /**
+     * @return 文件hash，读取出错时返回文件的绝对路径
+     */
+    public static String hash(String filepath){
+        boolean isVirtual = VirtualClasspath.isVirtual(filepath);
+        Path path = isVirtual ? VirtualClasspath.getPath(filepath) : Paths.get(filepath).toAbsolutePath();
+        if(path == null) return filepath;
+        String key = isVirtual ? filepath : path.toString();
+        BasicFileAttributes attrs;
+        try{
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        }catch (IOException e){
+            return key;
+        }
+
+        String algorithm = GlobalConfiguration.HASH_ALGORITHM;
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        Map<String, Entry> entries = getCache();
+        Entry entry = entries.get(key);
+        if(entry != null && entry.size == size && entry.modified == modified
+                && algorithm.equals(entry.algorithm)){
+            Metrics.counter("files.hashCached").increment();
+            return entry.hash;
+        }
+
+        long start = System.nanoTime();
+        try{
+            entry = new Entry();
+            entry.algorithm = algorithm;
+            entry.size = size;
+            entry.modified = modified;
+            entry.hash = compute(path, size, algorithm);
+        }catch (IOException e){
+            log.debug("Hash {} error: {}", key, e.getMessage());
+            return key;
+        }
+        Metrics.timer("files.hash").record(System.nanoTime() - start);
+        entries.put(key, entry);
+        changed = true;
+        return entry.hash;
+    }
+
+    /**
+     * 并行计算多个文件的hash
+     * @return 文件路径 -> hash
+     */
+    public static Map<String, String> hash(Collection<String> filepaths){
+        Map<String, String> hashes = new ConcurrentHashMap<>();
+        new ArrayList<>(filepaths).parallelStream()
+                .forEach(filepath -> hashes.put(filepath, hash(filepath)));
+        return hashes;
+    }
+
+    private static String compute(Path path, long size, String algorithm) throws IOException {
+        Hasher hasher = getHashFunction(algorithm).newHasher();
+        if(path.getFileSystem() != FileSystems.getDefault()){
+            // 压缩包中的jar包无法映射，直接读取
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try(InputStream is = Files.newInputStream(path)){
+                int length;
+                while((length = is.read(buffer)) != -1){
+                    hasher.putBytes(buffer, 0, length);
+                }
+            }
+            return hasher.hash().toString();
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long position = 0;
+            while(position < size){
+                long length = Math.min(CHUNK_SIZE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                hasher.putBytes(buffer);
+                position += length;
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    @SuppressWarnings({"deprecation"})
+    private static HashFunction getHashFunction(String algorithm){
+        if(MURMUR3.equals(algorithm)){
+            return Hashing.murmur3_128();
+        }
+        return Hashing.md5();
+    }
+
+    private static Map<String, Entry> getCache(){
+        if(cache == null){
+            synchronized (FileHasher.class){
+                if(cache == null){
+                    cache = load();
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static Map<String, Entry> load(){
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        Path file = getCacheFile();
+        if(Files.exists(file)){
+            try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+                Map<String, Entry> data = GSON.fromJson(reader, TYPE);
+                if(data != null) entries.putAll(data);
+            }catch (Exception e){
+                log.error("Load file hashes error: {}", e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 保存新计算的hash，已经不存在的文件不再保留
+     */
+    public static synchronized void save(){
+        if(cache == null || !changed) return;
+        Map<String, Entry> data = new TreeMap<>();
+        cache.forEach((path, entry) -> {
+            String file = VirtualClasspath.isVirtual(path) ? VirtualClasspath.getArchive(path) : path;
+            if(Files.exists(Paths.get(file))){
+                data.put(path, entry);
+            }
+        });
+
+        Path file = getCacheFile();
+        Path temp = file.resolveSibling(FILENAME + ".tmp");
+        try{
+            Files.createDirectories(file.getParent());
+            try(Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)){
+                GSON.toJson(data, TYPE, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            changed = false;
+        }catch (IOException e){
+            log.error("Save file hashes error: {}", e.getMessage());
+        }
+    }
+
+    private static Path getCacheFile(){
+        return Paths.get(GlobalConfiguration.OUTPUT_DIRECTORY, FILENAME).toAbsolutePath();
+    }
+
+    private static class Entry {
+        private String algorithm;
+        private long size;
+        private long modified;
+        private String hash;
+    }
+}
@@ -21,7 +21,7 @@ import java.util.zip.ZipFile;
 public class FileUtils {
 
     public static Map<String, String> findAllJdkDependencies(String target, boolean isNeedRecursion) throws IOException {
-        Map<String, String> paths = new HashMap<>();
+        List<String> files = new ArrayList<>();
         Path path = Paths.get(target).toRealPath();
         String realPath = path.toString();
         if (!Files.exists(path)) {
@@ -38,8 +38,7 @@ public class FileUtils {
                 }
 
                 if(file.endsWith(".jar") || file.endsWith(".jmod")){
-                    String fileMd5 = FileUtils.getFileMD5(file);
-                    paths.put(fileMd5, file);
+                    files.add(file);
                 }
                 return FileVisitResult.CONTINUE;
             }
@@ -54,6 +53,8 @@ public class FileUtils {
             }
         });
 
+        Map<String, String> paths = new HashMap<>();
+        FileHasher.hash(files).forEach((file, hash) -> paths.put(hash, file));
         return paths;
     }
 
@@ -0,0 +1,31 @@
+package tabby.util;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局id分配
+ * class、method节点需要跨多次分析保持一致（neo4j中MERGE、增量缓存均依赖该id），使用名称/签名的64位hash
+ * 边、变量等只在单次分析中使用，直接使用自增id，避免UUID.randomUUID的SecureRandom竞争和36位字符串的开销
+ * @author wh1t3p1g
+ * @since 2023/2/15
+ */
+public class IdGenerator {
+
+    private static final AtomicLong COUNTER = new AtomicLong(0);
+
+    public static long next(){
+        return COUNTER.incrementAndGet();
+    }
+
+    /**
+     * 相同的内容生成的id值也相同
+     */
+    public static long hash(String content){
+        return Hashing.murmur3_128()
+                .hashString(content, StandardCharsets.UTF_8)
+                .asLong();
+    }
+}
@@ -1,15 +1,32 @@
 package tabby.util;
 
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.jasper.JspC;
+import org.apache.jasper.compiler.JspUtil;
+import tabby.config.AsyncConfiguration;
+import tabby.config.GlobalConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 /**
  * @author wh1t3p1g
@@ -18,25 +35,272 @@ import java.util.List;
 @Slf4j
 public class JspUtils {
 
+    private static final String CACHE_DIRECTORY = "jsp-classes";
+
+    private static final Pattern INCLUDE_PATTERN =
+            Pattern.compile("(?:<%@\\s*include|<jsp:directive\\.include)\\s+file\\s*=\\s*[\"']([^\"']+)[\"']");
+
     public static String parse(String uriRoot, String classpath){
+        String output = String.join(File.separator, uriRoot, "jsp_classes_"+ RandomStringUtils.randomAlphanumeric(5));
+        long start = System.nanoTime();
         try{
-            String output = String.join(File.separator, uriRoot, "jsp_classes_"+ RandomStringUtils.randomAlphanumeric(5));
-            JspC jspc = new JspC();
-            jspc.setCompile(true);
-            jspc.setClassDebugInfo(false);
-            jspc.setFailOnError(false);
-            jspc.setOutputDir(output);
-            jspc.setClassPath(classpath);
-            jspc.setUriroot(uriRoot);
-            jspc.execute();
+            if(GlobalConfiguration.IS_PARALLEL_JSP_COMPILE){
+                parallelCompile(uriRoot, classpath, output);
+            }else{
+                compile(uriRoot, classpath, output, null);
+            }
             clean(output);
             return output;
         }catch (Exception e){
             log.error(e.getMessage());
+        }finally {
+            Metrics.timer("jsp.compile").record(System.nanoTime() - start);
         }
         return null;
     }
 
+    private static void compile(String uriRoot, String classpath, String output, List<String> jspFiles){
+        JspC jspc = new JspC();
+        jspc.setCompile(true);
+        jspc.setClassDebugInfo(false);
+        jspc.setFailOnError(false);
+        jspc.setOutputDir(output);
+        jspc.setClassPath(classpath);
+        jspc.setUriroot(uriRoot);
+        if(jspFiles != null){
+            jspc.setJspFiles(String.join(",", jspFiles));
+        }
+        jspc.execute();
+    }
+
+    /**
+     * 将jsp文件分批并行编译，每批使用独立的输出目录，编译完成后合并到output
+     * 编译结果按jsp内容缓存在 tabby.output.directory/jsp-classes 下，内容未变化的jsp直接使用缓存
+     */
+    private static void parallelCompile(String uriRoot, String classpath, String output) throws Exception {
+        Path root = Paths.get(uriRoot);
+        Path outputPath = Paths.get(output);
+        Path cachePath = Paths.get(GlobalConfiguration.OUTPUT_DIRECTORY, CACHE_DIRECTORY).toAbsolutePath();
+        String contextHash = hashContext(root, classpath);
+
+        Map<String, String> pending = new TreeMap<>(); // jsp -> cache key
+        int cachedCount = 0;
+        for(String jsp:findJspFiles(root)){
+            String key = hash(root, jsp, contextHash);
+            Path cached = cachePath.resolve(key);
+            if(Files.isDirectory(cached)){
+                copyClasses(cached, outputPath, null);
+                cachedCount++;
+            }else{
+                pending.put(jsp, key);
+            }
+        }
+        Metrics.counter("jsp.cached").add(cachedCount);
+        if(pending.isEmpty()) return;
+
+        List<List<String>> batches = Lists.partition(new ArrayList<>(pending.keySet()),
+                Math.max(1, GlobalConfiguration.JSP_BATCH_SIZE));
+        int threads = Math.max(1, Math.min(AsyncConfiguration.CORE_POOL_SIZE, batches.size()));
+        log.info("Compile {} jsp files in {} batches, {} cached.",
+                pending.size(), batches.size(), cachedCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < batches.size(); i++){
+                List<String> batch = batches.get(i);
+                Path batchOutput = Paths.get(output + "_" + i);
+                futures.add(executor.submit(() -> {
+                    try{
+                        compile(uriRoot, classpath, batchOutput.toString(), batch);
+                        for(String jsp:batch){
+                            cache(batchOutput, cachePath, pending.get(jsp), getClassPrefix(jsp));
+                        }
+                        copyClasses(batchOutput, outputPath, null);
+                        if(Files.exists(batchOutput)){
+                            FileUtils.deleteDirectory(batchOutput);
+                        }
+                    }catch (Exception e){ // 单个批次出错不影响其他批次
+                        log.error("Compile jsp batch {} error: {}", batchOutput.getFileName(), e.getMessage());
+                    }
+                }));
+            }
+            for(Future<?> future:futures){
+                future.get();
+            }
+        }finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 先写入临时目录再整体移动，避免中断时留下不完整的缓存
+     */
+    private static void cache(Path batchOutput, Path cachePath, String key, String prefix) throws IOException {
+        Path temp = cachePath.resolve(key + ".tmp");
+        if(copyClasses(batchOutput, temp, prefix) == 0) return; // 编译失败的jsp不缓存
+        try{
+            Files.move(temp, cachePath.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            Metrics.counter("jsp.compiled").increment();
+        }catch (FileAlreadyExistsException | DirectoryNotEmptyException e){
+            FileUtils.deleteDirectory(temp);
+        }
+    }
+
+    private static List<String> findJspFiles(Path root) throws IOException {
+        List<String> jspFiles = new ArrayList<>();
+        try(Stream<Path> stream = Files.walk(root)){
+            stream.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+                    .filter(file -> file.endsWith(".jsp") || file.endsWith(".jspx"))
+                    .forEach(jspFiles::add);
+        }
+        return jspFiles;
+    }
+
+    /**
+     * 编译后的类文件前缀，与jasper生成的类名保持一致，例如 a/b/index.jsp -> org/apache/jsp/a/b/index_jsp
+     */
+    private static String getClassPrefix(String jsp){
+        int index = jsp.lastIndexOf('/');
+        String pkg = "org.apache.jsp";
+        if(index > 0){
+            pkg = pkg + "." + JspUtil.makeJavaPackage(jsp.substring(0, index));
+        }
+        return pkg.replace('.', '/') + "/" + JspUtil.makeJavaIdentifier(jsp.substring(index + 1));
+    }
+
+    /**
+     * 复制类文件，prefix不为空时只复制该jsp对应的类（包括内部类）
+     * @return 复制的类文件数量
+     */
+    private static int copyClasses(Path source, Path target, String prefix) throws IOException {
+        if(!Files.isDirectory(source)) return 0;
+        List<Path> files = new ArrayList<>();
+        try(Stream<Path> stream = Files.walk(source)){
+            stream.filter(Files::isRegularFile).forEach(files::add);
+        }
+        int count = 0;
+        for(Path file:files){
+            String name = source.relativize(file).toString().replace(File.separatorChar, '/');
+            if(!name.endsWith(".class")) continue;
+            if(prefix != null && !name.equals(prefix + ".class") && !name.startsWith(prefix + "$")) continue;
+            Path dest = target.resolve(name);
+            Files.createDirectories(dest.getParent());
+            Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * jsp 的缓存key，由jsp路径、内容及静态include的文件内容、编译环境（见 hashContext）组成
+     */
+    private static String hash(Path root, String jsp, String contextHash) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(jsp, StandardCharsets.UTF_8);
+        hasher.putString(contextHash, StandardCharsets.UTF_8);
+        putIncludes(root, root.resolve(jsp), hasher, new HashSet<>());
+        return hasher.hash().toString();
+    }
+
+    private static void putIncludes(Path root, Path file, Hasher hasher, Set<Path> visited) throws IOException {
+        if(!visited.add(file.normalize()) || !Files.isRegularFile(file)) return;
+        byte[] content = Files.readAllBytes(file);
+        hasher.putBytes(content);
+        Matcher matcher = INCLUDE_PATTERN.matcher(new String(content, StandardCharsets.ISO_8859_1));
+        while(matcher.find()){
+            String include = matcher.group(1);
+            Path included = include.startsWith("/")
+                    ? root.resolve(include.substring(1)) : file.resolveSibling(include);
+            putIncludes(root, included, hasher, visited);
+        }
+    }
+
+    /**
+     * 所有jsp共用的编译环境，任意一项变化时全部jsp重新编译
+     * 包括：jasper版本、JspC的classpath（文件的大小及修改时间）、
+     * uriRoot下的tld文件、WEB-INF/web.xml（jsp-config中的include-prelude、include-coda、page-encoding等）、
+     * WEB-INF/lib/*.jar 中 META-INF 下的tld文件及web-fragment.xml
+     */
+    private static String hashContext(Path root, String classpath) throws IOException {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(getJasperVersion(), StandardCharsets.UTF_8);
+
+        if(classpath != null){
+            for(String entry:classpath.split(File.pathSeparator)){
+                hasher.putString(entry, StandardCharsets.UTF_8);
+                File file = new File(entry);
+                if(file.isFile()){
+                    hasher.putLong(file.length());
+                    hasher.putLong(file.lastModified());
+                }
+            }
+        }
+
+        List<Path> files = new ArrayList<>();
+        try(Stream<Path> stream = Files.walk(root)){
+            stream.filter(path -> path.toString().endsWith(".tld")).forEach(files::add);
+        }
+        Collections.sort(files);
+        Path webXml = root.resolve("WEB-INF").resolve("web.xml");
+        if(Files.isRegularFile(webXml)){
+            files.add(webXml);
+        }
+        for(Path file:files){
+            hasher.putString(root.relativize(file).toString(), StandardCharsets.UTF_8);
+            hasher.putBytes(Files.readAllBytes(file));
+        }
+
+        Path lib = root.resolve("WEB-INF").resolve("lib");
+        if(Files.isDirectory(lib)){
+            List<Path> jars = new ArrayList<>();
+            try(Stream<Path> stream = Files.list(lib)){
+                stream.filter(path -> path.toString().endsWith(".jar")).forEach(jars::add);
+            }
+            Collections.sort(jars);
+            for(Path jar:jars){
+                putJarMetaInf(jar, hasher);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putJarMetaInf(Path jar, Hasher hasher) throws IOException {
+        hasher.putString(jar.getFileName().toString(), StandardCharsets.UTF_8);
+        try(ZipFile zipFile = new ZipFile(jar.toFile())){
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while(enumeration.hasMoreElements()){
+                ZipEntry entry = enumeration.nextElement();
+                String name = entry.getName();
+                if(!entry.isDirectory() && name.startsWith("META-INF/")
+                        && (name.endsWith(".tld") || name.equals("META-INF/web-fragment.xml"))){
+                    entries.add(entry);
+                }
+            }
+            entries.sort(Comparator.comparing(ZipEntry::getName));
+            for(ZipEntry entry:entries){
+                hasher.putString(entry.getName(), StandardCharsets.UTF_8);
+                try(InputStream is = zipFile.getInputStream(entry)){
+                    hasher.putBytes(ByteStreams.toByteArray(is));
+                }
+            }
+        }catch (ZipException e){ // 损坏的jar，jasper同样无法读取，只记录文件名
+            log.debug("Can't open {}: {}", jar, e.getMessage());
+        }
+    }
+
+    /**
+     * jasper 的版本，jar包中没有版本信息时使用jar包的路径
+     */
+    private static String getJasperVersion(){
+        String version = JspC.class.getPackage().getImplementationVersion();
+        if(version == null && JspC.class.getProtectionDomain().getCodeSource() != null){
+            version = String.valueOf(JspC.class.getProtectionDomain().getCodeSource().getLocation());
+        }
+        return String.valueOf(version);
+    }
+
     public static String parse(String uriRoot){
         log.debug("Parse jsp files...");
         File file = new File(uriRoot);
@@ -0,0 +1,166 @@
+package tabby.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 运行过程中的计数器、计时器和直方图
+ * 全局共享，按名称创建，多线程下记录不加锁；运行结束后由 RunReport 统一输出
+ * 计时器记录的是每次调用的耗时，同时按2的幂次分桶，用于估算分位数
+ * @author wh1t3p1g
+ * @since 2023/2/17
+ */
+public class Metrics {
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> TIMERS = new ConcurrentHashMap<>();
+
+    public static Counter counter(String name){
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static Histogram histogram(String name){
+        return HISTOGRAMS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * 计时器为单位是 nanoseconds 的直方图
+     */
+    public static Histogram timer(String name){
+        return TIMERS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    public static <E extends Exception> void time(String name, Task<E> task) throws E {
+        long start = System.nanoTime();
+        try{
+            task.run();
+        }finally {
+            timer(name).record(System.nanoTime() - start);
+        }
+    }
+
+    public static Map<String, Long> getCounters(){
+        Map<String, Long> ret = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> ret.put(name, counter.get()));
+        return ret;
+    }
+
+    public static Map<String, Map<String, Object>> getHistograms(){
+        Map<String, Map<String, Object>> ret = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> ret.put(name, histogram.snapshot(1)));
+        return ret;
+    }
+
+    /**
+     * 计时器统一转换成 milliseconds 输出
+     */
+    public static Map<String, Map<String, Object>> getTimers(){
+        Map<String, Map<String, Object>> ret = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> ret.put(name, timer.snapshot(TimeUnit.MILLISECONDS.toNanos(1))));
+        return ret;
+    }
+
+    @FunctionalInterface
+    public interface Task<E extends Exception> {
+        void run() throws E;
+    }
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment(){
+            value.increment();
+        }
+
+        public void add(long delta){
+            value.add(delta);
+        }
+
+        public long get(){
+            return value.sum();
+        }
+    }
+
+    public static class Histogram {
+        private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        /**
+         * 第i个桶记录 [2^(i-1), 2^i) 范围内的值，第0个桶记录小于1的值
+         */
+        private final LongAdder[] buckets = new LongAdder[64];
+
+        private Histogram(){
+            for(int i = 0; i < buckets.length; i++){
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long value){
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+            buckets[value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value)].increment();
+        }
+
+        public long getCount(){
+            return count.sum();
+        }
+
+        public long getSum(){
+            return sum.sum();
+        }
+
+        /**
+         * 分位数取对应桶的上界，与真实值最多相差一倍
+         */
+        private long percentile(long[] counts, long total, double percentile){
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++){
+                seen += counts[i];
+                if(seen >= rank){
+                    return i == 0 ? 0 : Math.min(max.get(), i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * @param unit 输出时每个单位对应的原始值
+         */
+        public Map<String, Object> snapshot(long unit){
+            Map<String, Object> ret = new LinkedHashMap<>();
+            long total = count.sum();
+            ret.put("count", total);
+            if(total == 0) return ret;
+
+            long[] counts = new long[buckets.length];
+            for(int i = 0; i < buckets.length; i++){
+                counts[i] = buckets[i].sum();
+            }
+            ret.put("total", scale(sum.sum(), unit));
+            ret.put("mean", scale(sum.sum() / total, unit));
+            ret.put("min", scale(min.get(), unit));
+            ret.put("max", scale(max.get(), unit));
+            for(double percentile:PERCENTILES){
+                ret.put("p" + (int) (percentile * 100), scale(percentile(counts, total, percentile), unit));
+            }
+            return ret;
+        }
+
+        private static double scale(long value, long unit){
+            if(unit == 1) return value;
+            return Math.round(value * 1000.0 / unit) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package tabby.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局符号表，对类名、函数子签名、类型名等重复出现的字符串去重
+ * 同一个类名会出现在 classRef、methodRef、调用边的 realCallType 以及变量的类型中，
+ * 从缓存、数据库中加载的节点每次都会生成新的字符串，这里统一替换为同一个实例
+ * 从soot中收集的字符串大多仍被soot持有，分析过程中去重基本不减少堆内存，主要作用于从缓存、数据库加载的节点
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+public class Symbols {
+
+    private static volatile Map<String, String> symbols = new ConcurrentHashMap<>(1 << 16);
+
+    public static String intern(String value){
+        if(value == null) return null;
+        Map<String, String> table = symbols;
+        String symbol = table.get(value);
+        if(symbol == null){
+            symbol = table.putIfAbsent(value, value);
+            if(symbol == null){
+                symbol = value;
+            }
+        }
+        return symbol;
+    }
+
+    public static int size(){
+        return symbols.size();
+    }
+
+    /**
+     * 只清空符号表，已经去重的字符串仍由各节点持有
+     * ConcurrentHashMap.clear 不会释放扩容后的数组，这里直接替换为新的表
+     */
+    public static void clear(){
+        symbols = new ConcurrentHashMap<>();
+    }
+}
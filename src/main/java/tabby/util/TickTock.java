@@ -2,6 +2,7 @@ package tabby.util;
 
 import lombok.extern.slf4j.Slf4j;
 import tabby.config.GlobalConfiguration;
+import tabby.core.data.AnalysisBudget;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -30,23 +31,36 @@ public class TickTock {
     }
 
     public void await() {
-        long timeout = GlobalConfiguration.TIMEOUT * 60L; // 预计每个都处理1s + 额外的最大时延10分钟
-        info("Wait for all tasks to complete. Timeout: {}s", timeout);
+        await(System.nanoTime() + TimeUnit.MINUTES.toNanos(GlobalConfiguration.TIMEOUT));
+    }
+
+    /**
+     * 等待至指定的截止时间，多批任务共用同一个超时时间时使用
+     * @param deadline System.nanoTime() 形式的截止时间
+     */
+    public void await(long deadline) {
+        long timeout = Math.max(1, GlobalConfiguration.TIMEOUT * 60L); // 强制停止后，每隔该时间输出一次剩余的任务数
+        long remain = Math.max(0, deadline - System.nanoTime());
+        info("Wait for all tasks to complete. Timeout: {}s", TimeUnit.NANOSECONDS.toSeconds(remain));
         try {
-            if(!latch.await(timeout, TimeUnit.SECONDS)){
+            if(!latch.await(remain, TimeUnit.NANOSECONDS)){
                 error("Still have {} methods to analysis, but it reached the max timeout.", latch.getCount());
-                GlobalConfiguration.isNeedStop = true;
-                info("Try to force stopping running task. Timeout: {}s", timeout);
-                latch.await(timeout, TimeUnit.SECONDS);
-                error("Remain {} running task", latch.getCount());
+                int cancelled = AnalysisBudget.stopAll();
+                info("Try to force stopping {} running task, skip the queued tasks.", cancelled);
+                // 排队中的任务直接返回，进行中的任务在下一条语句处结束，等待全部结束后再返回，避免后续保存时仍有任务在写入
+                while(!latch.await(timeout, TimeUnit.SECONDS)){
+                    error("Remain {} running task", latch.getCount());
+                }
+                info("All tasks stopped.");
             }else{
                 info("All tasks completed.");
             }
         } catch (InterruptedException e) {
-            e.printStackTrace();
-            error("Still have {} methods to analysis, but it reached the max timeout.", latch.getCount());
+            Thread.currentThread().interrupt();
+            error("Still have {} methods to analysis, but it was interrupted.", latch.getCount());
+        } finally {
+            AnalysisBudget.resume();
         }
-        GlobalConfiguration.isNeedStop = false;
     }
 
     public void info(String msg, Object... objs){
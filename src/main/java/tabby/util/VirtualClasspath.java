@@ -0,0 +1,202 @@
+package tabby.util;
+
+import lombok.extern.slf4j.Slf4j;
+import soot.ClassProvider;
+import soot.FoundFile;
+import soot.ModulePathSourceLocator;
+import soot.Scene;
+import soot.SourceLocator;
+import soot.asm.AsmClassProvider;
+import soot.asm.AsmClassSource;
+import soot.asm.AsmJava9ClassProvider;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * fatJar、war 的虚拟classpath，直接从压缩包中读取类文件，不再解压到临时目录
+ * classpath 格式为 压缩包绝对路径!/内部路径，例如
+ *   /path/to/app.jar!/BOOT-INF/classes
+ *   /path/to/app.jar!/BOOT-INF/lib/commons-collections-3.1.jar
+ *   /path/to/app.jar!/ 压缩包根目录下的类文件（不包括 BOOT-INF/classes、WEB-INF/classes）
+ * 压缩包及内嵌的jar包通过 zipfs 打开，soot 先从真实的 classpath 中查找类，找不到时再从虚拟 classpath 中查找
+ * 内嵌jar包在打开期间由 zipfs 保存在内存中
+ * @author wh1t3p1g
+ * @since 2023/2/18
+ */
+@Slf4j
+public class VirtualClasspath {
+
+    public static final String SEPARATOR = "!/";
+
+    private static final List<FileSystem> fileSystems = new ArrayList<>();
+    /**
+     * 虚拟classpath -> 对应的目录或内嵌jar包
+     */
+    private static final Map<String, Path> paths = new ConcurrentHashMap<>();
+    /**
+     * 虚拟classpath -> 其中的类
+     */
+    private static final Map<String, List<String>> classesUnder = new ConcurrentHashMap<>();
+    /**
+     * classname -> 类文件，同名的类以先注册的为准
+     */
+    private static final Map<String, Path> classes = new ConcurrentHashMap<>();
+
+    /**
+     * 打开 fatJar 或 war，注册其中的类目录及内嵌jar包
+     * @return 虚拟classpath；压缩包中存在jsp、jmod，或当前jdk不支持内嵌的zipfs时，返回null，需要解压处理
+     */
+    public static synchronized Set<String> open(Path archive) throws IOException {
+        String archivePath = archive.toAbsolutePath().toString();
+        FileSystem fs = FileSystems.newFileSystem(archive, (ClassLoader) null);
+        Path root = fs.getPath("/");
+        List<Path> files = new ArrayList<>();
+        try(Stream<Path> stream = Files.walk(root)){
+            stream.filter(Files::isRegularFile).forEach(files::add);
+        }catch (IOException e){
+            fs.close();
+            throw e;
+        }
+
+        List<Path> jars = new ArrayList<>();
+        for(Path file:files){
+            String name = file.toString();
+            if(name.endsWith(".jsp") || name.endsWith(".jspx") || name.endsWith(".tld")
+                    || name.endsWith(".jmod")){
+                // jsp 需要落地后编译，jmod 需要作为真实的classpath，仍然解压处理
+                fs.close();
+                return null;
+            }else if(name.endsWith(".jar")){
+                jars.add(file);
+            }
+        }
+
+        List<FileSystem> opened = new ArrayList<>();
+        opened.add(fs);
+        Map<Path, FileSystem> nestedJars = new LinkedHashMap<>();
+        try{
+            jars.sort(Comparator.comparing(Path::toString));
+            for(Path jar:jars){
+                FileSystem nested = FileSystems.newFileSystem(jar, (ClassLoader) null);
+                opened.add(nested);
+                nestedJars.put(jar, nested);
+            }
+        }catch (UnsupportedOperationException | ProviderNotFoundException | IOException e){
+            // jdk8 的 zipfs 不支持打开非默认文件系统上的文件
+            log.debug("Open nested jar error: {}", e.getMessage());
+            close(opened);
+            return null;
+        }
+        fileSystems.addAll(opened);
+
+        Set<String> cps = new LinkedHashSet<>();
+        // BOOT-INF/classes、WEB-INF/classes 中的类优先
+        for(String dir:new String[]{"/BOOT-INF/classes", "/WEB-INF/classes"}){
+            Path classesDir = fs.getPath(dir);
+            if(Files.isDirectory(classesDir)){
+                register(archivePath + "!" + dir, classesDir, classesDir, files, null, cps);
+            }
+        }
+        register(archivePath + SEPARATOR, root, root, files,
+                Arrays.asList("/BOOT-INF/classes/", "/WEB-INF/classes/"), cps);
+        for(Map.Entry<Path, FileSystem> entry:nestedJars.entrySet()){
+            Path nestedRoot = entry.getValue().getPath("/");
+            List<Path> nestedFiles = new ArrayList<>();
+            try(Stream<Path> stream = Files.walk(nestedRoot)){
+                stream.filter(Files::isRegularFile).forEach(nestedFiles::add);
+            }
+            register(archivePath + "!" + entry.getKey(), entry.getKey(), nestedRoot, nestedFiles, null, cps);
+        }
+        log.info("Open {} as {} virtual classpath.", archive.getFileName(), cps.size());
+        return cps;
+    }
+
+    private static void register(String cp, Path path, Path root, List<Path> files, List<String> excludes, Set<String> cps){
+        String prefix = root.toString().endsWith("/") ? root.toString() : root + "/";
+        List<String> found = new ArrayList<>();
+        for(Path file:files){
+            String name = file.toString();
+            if(!name.endsWith(".class") || !name.startsWith(prefix)) continue;
+            if(excludes != null && excludes.stream().anyMatch(name::startsWith)) continue;
+            String classname = name.substring(prefix.length(), name.length() - ".class".length()).replace('/', '.');
+            found.add(classname);
+            classes.putIfAbsent(classname, file);
+        }
+        if(found.isEmpty()) return;
+        paths.put(cp, path);
+        classesUnder.put(cp, found);
+        cps.add(cp);
+    }
+
+    public static boolean isVirtual(String cp){
+        return cp != null && cp.contains(SEPARATOR);
+    }
+
+    /**
+     * @return 虚拟classpath所在的压缩包
+     */
+    public static String getArchive(String cp){
+        return cp.substring(0, cp.indexOf(SEPARATOR));
+    }
+
+    /**
+     * @return 虚拟classpath对应的路径，内嵌jar包返回其在压缩包中的文件，未注册时返回null
+     */
+    public static Path getPath(String cp){
+        return paths.get(cp);
+    }
+
+    public static boolean isDirectory(String cp){
+        return isVirtual(cp) && !cp.endsWith(".jar");
+    }
+
+    public static List<String> getClassesUnder(String cp){
+        List<String> found = classesUnder.get(cp);
+        return found == null ? new ArrayList<>() : new ArrayList<>(found);
+    }
+
+    public static ClassProvider getClassProvider(){
+        return className -> {
+            Path file = classes.get(className);
+            if(file == null) return null;
+            return new AsmClassSource(className, new FoundFile(file)){};
+        };
+    }
+
+    /**
+     * 在soot默认的类查找方式后面追加虚拟classpath
+     * G.reset() 会重置 SourceLocator，需要在 initSootOption 及 setSootClassPath 之后调用
+     */
+    public static void install(){
+        if(classes.isEmpty()) return;
+        List<ClassProvider> providers = new ArrayList<>();
+        if(Scene.v().getSootClassPath().contains(ModulePathSourceLocator.DUMMY_CLASSPATH_JDK9_FS)){
+            providers.add(new AsmJava9ClassProvider());
+        }
+        providers.add(new AsmClassProvider());
+        providers.add(getClassProvider());
+        SourceLocator.v().setClassProviders(providers);
+    }
+
+    public static synchronized void close(){
+        close(fileSystems);
+        fileSystems.clear();
+        paths.clear();
+        classesUnder.clear();
+        classes.clear();
+    }
+
+    private static void close(List<FileSystem> opened){
+        for(int i = opened.size() - 1; i >= 0; i--){ // 先关闭内嵌的jar包
+            try{
+                opened.get(i).close();
+            }catch (IOException e){
+                log.debug("Close zipfs error: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package tabby.core.data;
+
+import org.junit.jupiter.api.Test;
+import tabby.util.PositionHelper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+class AccessPathTest {
+
+    private static final String[] PATHS = {
+            "this",
+            "source",
+            "null",
+            "param-0",
+            "param-17",
+            "this|<tabby.fixture.LazyMap: java.util.Map map>",
+            "param-1|<tabby.fixture.TiedMapEntry: java.util.Map map>|<tabby.fixture.LazyMap: java.util.Map map>",
+            "param-0|<tabby.fixture.ChainedTransformer: tabby.fixture.Transformer[] transformers>|0",
+            "null|<java.lang.String: byte[] value>|12",
+    };
+
+    @Test
+    void parseAndToStringRoundTrip(){
+        for(String path:PATHS){
+            AccessPath parsed = AccessPath.parse(path);
+            assertEquals(path, parsed.toString());
+            assertEquals(path, AccessPath.toString(parsed));
+            assertSame(parsed, AccessPath.parse(path));
+        }
+        assertNull(AccessPath.parse(null));
+        assertNull(AccessPath.toString(null));
+    }
+
+    @Test
+    void hashCodeMatchesString(){
+        for(String path:PATHS){
+            assertEquals(path.hashCode(), AccessPath.parse(path).hashCode(), path);
+        }
+    }
+
+    @Test
+    void remainIsDroppedFromEverySegment(){
+        String path = "param-1|<tabby.fixture.LazyMap: java.util.Map map>";
+        AccessPath remain = AccessPath.parse(path + AccessPath.REMAIN);
+        assertSame(AccessPath.parse(path), remain);
+        assertEquals(path, remain.toString());
+        assertEquals(path.hashCode(), remain.hashCode());
+
+        assertSame(AccessPath.param(1), AccessPath.parse("param-1" + AccessPath.REMAIN));
+        assertSame(AccessPath.parse("this|<a.B: int f>|0"),
+                AccessPath.parse("this" + AccessPath.REMAIN + "|<a.B: int f>" + AccessPath.REMAIN + "|0"));
+    }
+
+    @Test
+    void appendReturnsParsedInstance(){
+        AccessPath field = AccessPath.THIS.append("<a.B: java.lang.Object f>");
+        assertSame(AccessPath.parse("this|<a.B: java.lang.Object f>"), field);
+        assertSame(AccessPath.parse("this|<a.B: java.lang.Object f>|3"), AccessPath.append(field, 3));
+        assertSame(AccessPath.parse("null|<a.B: int g>"), AccessPath.append(null, "<a.B: int g>"));
+        assertSame(AccessPath.THIS, field.getParent());
+        assertEquals("<a.B: java.lang.Object f>", field.getSegment());
+        assertTrue(field.contains("this"));
+        assertFalse(field.contains("param-0"));
+    }
+
+    @Test
+    void positionAndIndex(){
+        assertSame(AccessPath.THIS, AccessPath.parse("this"));
+        assertSame(AccessPath.SOURCE, AccessPath.parse("source"));
+        assertSame(AccessPath.UNKNOWN, AccessPath.parse("null"));
+        assertSame(AccessPath.param(2), AccessPath.parse("param-2"));
+
+        assertEquals(PositionHelper.THIS, AccessPath.parse("this|<a.B: int f>").getPosition());
+        assertEquals(PositionHelper.SOURCE, AccessPath.SOURCE.getPosition());
+        assertEquals(PositionHelper.NOT_POLLUTED_POSITION, AccessPath.UNKNOWN.getPosition());
+        assertEquals(17, AccessPath.parse("param-17|<a.B: int f>").getPosition());
+
+        assertTrue(AccessPath.parse("param-0|<a.B: int f>").isRelated());
+        assertFalse(AccessPath.parse("source|<a.B: int f>").isRelated());
+        assertEquals(5, AccessPath.parse("this|<a.B: int[] f>|5").getIndex());
+        assertEquals(-1, AccessPath.parse("this|<a.B: int[] f>").getIndex());
+        assertEquals(-1, AccessPath.param(5).getIndex());
+    }
+}
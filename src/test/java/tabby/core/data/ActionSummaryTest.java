@@ -0,0 +1,72 @@
+package tabby.core.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+class ActionSummaryTest {
+
+    @Test
+    void compileClearRemainAndReturn(){
+        Map<String, String> actions = new LinkedHashMap<>();
+        actions.put("param-0", ActionSummary.CLEAR);
+        actions.put("this|<a.B: java.lang.Object f>", "param-1" + AccessPath.REMAIN);
+        actions.put("param-1", "this|<a.B: java.lang.Object g>");
+        actions.put(ActionSummary.RETURN, "param-0|<a.B: java.lang.Object f>");
+
+        ActionSummary summary = ActionSummary.compile(actions, 7);
+        assertEquals(7, summary.getVersion());
+        ActionSummary.Transfer[] transfers = summary.getTransfers();
+        assertEquals(3, transfers.length);
+
+        ActionSummary.Transfer clear = transfers[0];
+        assertSame(AccessPath.param(0), clear.getTarget());
+        assertNull(clear.getSource());
+        assertTrue(clear.isClear());
+        assertFalse(clear.isRemain());
+
+        ActionSummary.Transfer remain = transfers[1];
+        assertSame(AccessPath.parse("this|<a.B: java.lang.Object f>"), remain.getTarget());
+        assertSame(AccessPath.param(1), remain.getSource());
+        assertFalse(remain.isClear());
+        assertTrue(remain.isRemain());
+
+        ActionSummary.Transfer assign = transfers[2];
+        assertSame(AccessPath.param(1), assign.getTarget());
+        assertSame(AccessPath.parse("this|<a.B: java.lang.Object g>"), assign.getSource());
+        assertFalse(assign.isClear());
+        assertFalse(assign.isRemain());
+
+        assertTrue(summary.hasReturn());
+        assertSame(AccessPath.parse("param-0|<a.B: java.lang.Object f>"), summary.getReturnPath());
+    }
+
+    @Test
+    void compileReturnOnly(){
+        ActionSummary summary = ActionSummary.compile(Collections.singletonMap(ActionSummary.RETURN, "this"), 1);
+        assertEquals(0, summary.getTransfers().length);
+        assertTrue(summary.hasReturn());
+        assertSame(AccessPath.THIS, summary.getReturnPath());
+    }
+
+    @Test
+    void compileEmpty(){
+        assertEmpty(ActionSummary.compile(null, 3));
+        assertEmpty(ActionSummary.compile(Collections.emptyMap(), 3));
+    }
+
+    private static void assertEmpty(ActionSummary summary){
+        assertEquals(0, summary.getTransfers().length);
+        assertFalse(summary.hasReturn());
+        assertNull(summary.getReturnPath());
+        assertEquals(3, summary.getVersion());
+    }
+}
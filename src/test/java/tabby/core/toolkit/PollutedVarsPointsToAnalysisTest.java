@@ -0,0 +1,128 @@
+package tabby.core.toolkit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import soot.*;
+import soot.jimple.JimpleBody;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.DirectedGraph;
+import tabby.core.Fixtures;
+import tabby.core.collector.ClassInfoCollector;
+import tabby.core.container.DataContainer;
+import tabby.core.data.Context;
+import tabby.core.data.TabbyVariable;
+import tabby.core.switcher.Switcher;
+import tabby.core.switcher.stmt.SimpleStmtSwitcher;
+import tabby.core.switcher.stmt.StmtSwitcher;
+import tabby.core.switcher.value.SimpleLeftValueSwitcher;
+import tabby.core.switcher.value.SimpleRightValueSwitcher;
+import tabby.dal.caching.bean.ref.MethodReference;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 流集合共享变量实例（shareLocalMap + getOrAdd 写时拷贝）与原先每次 deepClone 整个流集合的结果应一致
+ * 先完成 fixture 中全部函数的分析，再对每个函数分别用两种方式重新分析，比较得到的 actions
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+class PollutedVarsPointsToAnalysisTest {
+
+    private static DataContainer dataContainer;
+    private static List<SootMethod> methods = new ArrayList<>();
+
+    @BeforeAll
+    static void analyseFixtures(){
+        dataContainer = Fixtures.newDataContainer();
+        List<SootClass> classes = Fixtures.loadFixtureClasses();
+        for(SootClass cls:classes){
+            dataContainer.store(ClassInfoCollector.collect0(cls, dataContainer));
+        }
+        for(SootClass cls:classes){
+            for(SootMethod method:new ArrayList<>(cls.getMethods())){
+                MethodReference methodRef = dataContainer.getMethodRefBySignature(method.getSignature());
+                if(methodRef == null || !method.isConcrete()) continue;
+                Switcher.doMethodAnalysis(Context.newInstance(methodRef.getSignature(), methodRef), dataContainer, method, methodRef);
+                methods.add(method);
+            }
+        }
+    }
+
+    @Test
+    void sharedFlowSetsProduceSameActionsAsDeepClone(){
+        assertFalse(methods.isEmpty());
+        int withActions = 0;
+        for(SootMethod method:methods){
+            MethodReference methodRef = dataContainer.getMethodRefBySignature(method.getSignature());
+            Map<String, String> lazy = analyse(method, methodRef, false);
+            Map<String, String> eager = analyse(method, methodRef, true);
+            assertEquals(eager, lazy, methodRef.getSignature());
+            if(!lazy.isEmpty()) withActions++;
+        }
+        assertFalse(withActions == 0, "fixture methods should produce actions");
+    }
+
+    private static Map<String, String> analyse(SootMethod method, MethodReference methodRef, boolean eager){
+        methodRef.setActions(new HashMap<>());
+        JimpleBody body = (JimpleBody) method.retrieveActiveBody();
+        DirectedGraph<Unit> graph = new BriefUnitGraph(body);
+        PollutedVarsPointsToAnalysis analysis = eager ? new DeepCloneAnalysis(graph) : new PollutedVarsPointsToAnalysis(graph);
+        StmtSwitcher switcher = new SimpleStmtSwitcher();
+        switcher.setMethodRef(methodRef);
+        switcher.setLeftValueSwitcher(new SimpleLeftValueSwitcher());
+        switcher.setRightValueSwitcher(new SimpleRightValueSwitcher());
+        analysis.setBody(body);
+        analysis.setDataContainer(dataContainer);
+        analysis.setStmtSwitcher(switcher);
+        analysis.setContext(Context.newInstance(methodRef.getSignature(), methodRef));
+        analysis.setMethodRef(methodRef);
+        analysis.doAnalysis();
+        return new TreeMap<>(methodRef.getActions());
+    }
+
+    /**
+     * 共享变量实例之前的实现：flowThrough、copy、merge 时 deepClone 全部变量
+     */
+    private static class DeepCloneAnalysis extends PollutedVarsPointsToAnalysis {
+
+        DeepCloneAnalysis(DirectedGraph<Unit> graph) {
+            super(graph);
+        }
+
+        @Override
+        protected void flowThrough(Map<Local, TabbyVariable> in, Unit d, Map<Local, TabbyVariable> out) {
+            Map<Local, TabbyVariable> newIn = new HashMap<>();
+            copy(in, newIn);
+            getContext().setLocalMap(newIn);
+            getContext().setInitialMap(getInitialMap());
+            getStmtSwitcher().setContext(getContext());
+            getStmtSwitcher().setDataContainer(getDataContainer());
+            d.apply(getStmtSwitcher());
+            out.putAll(clean(getContext().getLocalMap()));
+        }
+
+        @Override
+        protected void merge(Map<Local, TabbyVariable> in1, Map<Local, TabbyVariable> in2, Map<Local, TabbyVariable> out) {
+            copy(in1, out);
+            in2.forEach((local, in2Var) -> {
+                TabbyVariable outVar = out.get(local);
+                if(outVar != null){
+                    outVar.union(in2Var);
+                }else{
+                    out.put(local, in2Var);
+                }
+            });
+        }
+
+        @Override
+        protected void copy(Map<Local, TabbyVariable> source, Map<Local, TabbyVariable> dest) {
+            dest.clear();
+            for (Map.Entry<Local, TabbyVariable> entry : source.entrySet()) {
+                dest.put(entry.getKey(), entry.getValue().deepClone(new ArrayList<>()));
+            }
+        }
+    }
+}
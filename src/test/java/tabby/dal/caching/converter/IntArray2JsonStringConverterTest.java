@@ -0,0 +1,58 @@
+package tabby.dal.caching.converter;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author wh1t3p1g
+ * @since 2023/2/20
+ */
+class IntArray2JsonStringConverterTest {
+
+    private final IntArray2JsonStringConverter converter = new IntArray2JsonStringConverter();
+
+    @Test
+    void toDatabaseColumn(){
+        assertEquals("", converter.convertToDatabaseColumn(null));
+        assertEquals("[]", converter.convertToDatabaseColumn(new int[0]));
+        assertEquals("[-1,0,-3]", converter.convertToDatabaseColumn(new int[]{-1, 0, -3}));
+        // 与原先 List<Integer> 经 gson 转换的结果一致
+        assertEquals(new Gson().toJson(Arrays.asList(-1, 0, -3, 12)),
+                IntArray2JsonStringConverter.toJson(new int[]{-1, 0, -3, 12}));
+    }
+
+    @Test
+    void emptyValues(){
+        assertArrayEquals(new int[0], converter.convertToEntityAttribute(null));
+        assertArrayEquals(new int[0], converter.convertToEntityAttribute(""));
+        assertArrayEquals(new int[0], converter.convertToEntityAttribute("   "));
+        assertArrayEquals(new int[0], converter.convertToEntityAttribute("[]"));
+        assertArrayEquals(new int[0], converter.convertToEntityAttribute("[ \t]"));
+    }
+
+    @Test
+    void negativesAndWhitespace(){
+        assertArrayEquals(new int[]{-1, 0, -3}, converter.convertToEntityAttribute("[-1,0,-3]"));
+        assertArrayEquals(new int[]{-2, 5}, converter.convertToEntityAttribute(" [ -2 ,\t5 ] "));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE},
+                converter.convertToEntityAttribute("[-2147483648,2147483647]"));
+    }
+
+    @Test
+    void roundTrip(){
+        int[][] values = {{}, {0}, {-1}, {-3, -2, -1, 0, 1, 2, 3}};
+        for(int[] value:values){
+            assertArrayEquals(value, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(value)));
+        }
+    }
+
+    @Test
+    void illegalValues(){
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute("-1,0"));
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute("[1,,2]"));
+    }
+}